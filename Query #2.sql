@@ -1,20 +1,31 @@
+-- Same schema as SchemaMigrator V1-V3 (run SchemaMigrator instead on an existing database).
+-- Keep in sync with the migrations.
 CREATE TABLE tasks(
-	id CHAR(36) PRIMARY KEY,
-	customer_id CHAR(36) NOT NULL,
+	id BINARY(16) PRIMARY KEY,
+	customer_id BINARY(16) NOT NULL,
 	title VARCHAR(100) NOT NULL,
 	DESCRIPTION TEXT,
 	STATUS ENUM("PENDING","DONE","CANCELLED") DEFAULT "PENDING",
 	due_date DATETIME,
 	created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+	INDEX idx_tasks_created (created_at, id),
+	INDEX idx_tasks_status_due (STATUS, due_date),
+	INDEX idx_tasks_customer_created (customer_id, created_at),
 	FOREIGN KEY (customer_id) REFERENCES customers(id)
 );
 
 CREATE TABLE communications(
-	id CHAR(36) PRIMARY KEY,
-	customer_id CHAR(36) NOT NULL,
+	id BINARY(16) PRIMARY KEY,
+	customer_id BINARY(16) NOT NULL,
 	title VARCHAR(100) NOT NULL,
 	DESCRIPTION TEXT,
 	STATUS ENUM("EMAIL","CALL","MEETING"),
 	created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+	call_duration_seconds INT NULL,
+	call_outcome ENUM("ANSWERED","MISSED","DECLINED") NULL,
+	recipient_email VARCHAR(100) NULL,
+	attachment_name VARCHAR(255) NULL,
+	INDEX idx_communications_created (created_at, id),
+	INDEX idx_communications_customer_created (customer_id, created_at),
 	FOREIGN KEY (customer_id) REFERENCES customers(id)
 );
\ No newline at end of file
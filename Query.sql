@@ -1,21 +1,27 @@
+-- Same schema as SchemaMigrator V1-V3 (run SchemaMigrator instead on an existing database).
+-- Keep in sync with the migrations.
 CREATE TABLE customers(
-	id CHAR(36)  PRIMARY KEY,
+	id BINARY(16) PRIMARY KEY,
 	full_name VARCHAR(100) NOT NULL,
 	phone VARCHAR(20) NOT NULL,
 	email VARCHAR(100) NOT NULL UNIQUE,
 	category ENUM ("VIP","REGULAR","NEW") NOT NULL,
 	notes TEXT,
-	created_at DATETIME DEFAULT CURRENT_TIMESTAMP
+	created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+	INDEX idx_customers_created (created_at, id)
 );
 
 CREATE TABLE appointments(
-	id CHAR(36) PRIMARY KEY,
-	customer_id CHAR(36) NOT NULL,
+	id BINARY(16) PRIMARY KEY,
+	customer_id BINARY(16) NOT NULL,
 	title VARCHAR(40) NOT NULL,
 	DESCRIPTION TEXT NOT NULL,
 	appointment_date DATETIME,
 	location VARCHAR(50),
 	STATUS ENUM("PENDING","DONE","CANCELLED") DEFAULT "PENDING",
 	created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+	INDEX idx_appointments_created (created_at, id),
+	INDEX idx_appointments_date (appointment_date),
+	INDEX idx_appointments_customer_created (customer_id, created_at),
 	FOREIGN KEY (customer_id) REFERENCES customers(id)
 );
\ No newline at end of file
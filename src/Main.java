@@ -1,8 +1,35 @@
 import gui.CRMGUI;
 import javax.swing.*;
+import java.sql.SQLException;
 
 public class Main {
+    // -Dcrm.schema.checkPlans=false skips the EXPLAIN self-check
+    private static final boolean CHECK_QUERY_PLANS =
+            Boolean.parseBoolean(System.getProperty("crm.schema.checkPlans", "true"));
+
     public static void main(String[] args) {
+        try {
+            SchemaMigrator.migrate();
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(null, "Could not update the database schema.", "Error",
+                    JOptionPane.ERROR_MESSAGE);
+            System.exit(1);
+        }
+
+        if (CHECK_QUERY_PLANS) {
+            // Advisory only, so it runs beside the GUI instead of delaying it
+            Thread check = new Thread(() -> {
+                try {
+                    QueryPlanCheck.run();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }, "crm-query-plan-check");
+            check.setDaemon(true);
+            check.start();
+        }
+
         SwingUtilities.invokeLater(() -> new CRMGUI().setVisible(true));
     }
 }
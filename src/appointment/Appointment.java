@@ -20,14 +20,21 @@ public class Appointment {
     // Constructor
     public Appointment(UUID customerId, String title, String description, LocalDateTime appointmentDate,
                        String location, AppointmentStatus status) {
-        this.appointmentId = UUID.randomUUID();
+        this(Ids.next(), customerId, title, description, appointmentDate, location, status, LocalDateTime.now());
+    }
+
+    // A stored appointment: keeps its id and creation time instead of generating new ones
+    public Appointment(UUID appointmentId, UUID customerId, String title, String description,
+                       LocalDateTime appointmentDate, String location, AppointmentStatus status,
+                       LocalDateTime createdAt) {
+        this.appointmentId = appointmentId;
         this.customerId = customerId;
         this.title = title;
         this.description = description;
         this.appointmentDate = appointmentDate;
         this.location = location;
         this.status = status != null ? status : AppointmentStatus.PENDING;
-        this.createdAt = LocalDateTime.now();
+        this.createdAt = createdAt;
     }
 
     // Getters
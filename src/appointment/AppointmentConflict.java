@@ -0,0 +1,30 @@
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+// An existing appointment that a new or moved one would overlap, and why it matters
+public class AppointmentConflict {
+
+    public enum Kind { CUSTOMER, LOCATION }
+
+    private final UUID appointmentId;
+    private final Kind kind;
+    private final LocalDateTime start;
+
+    public AppointmentConflict(UUID appointmentId, Kind kind, LocalDateTime start) {
+        this.appointmentId = appointmentId;
+        this.kind = kind;
+        this.start = start;
+    }
+
+    public UUID getAppointmentId() { return appointmentId; }
+    public Kind getKind() { return kind; }
+    public LocalDateTime getStart() { return start; }
+
+    @Override
+    public String toString() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy | HH:mm");
+        return "Overlaps appointment " + appointmentId + " at " + start.format(formatter) +
+                (kind == Kind.CUSTOMER ? " for the same customer" : " at the same location");
+    }
+}
@@ -0,0 +1,16 @@
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.List;
+
+// Thrown by AppointmentDAO when a booking overlaps others; nothing was written
+public class AppointmentConflictException extends SQLIntegrityConstraintViolationException {
+
+    private final List<AppointmentConflict> conflicts;
+
+    public AppointmentConflictException(List<AppointmentConflict> conflicts) {
+        super(conflicts.size() == 1 ? conflicts.get(0).toString()
+                : conflicts.get(0) + " (and " + (conflicts.size() - 1) + " more)");
+        this.conflicts = List.copyOf(conflicts);
+    }
+
+    public List<AppointmentConflict> getConflicts() { return conflicts; }
+}
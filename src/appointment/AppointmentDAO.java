@@ -1,37 +1,76 @@
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public class AppointmentDAO {
 
+    private static final String INSERT_SQL = "INSERT INTO appointments(id, customer_id, title, description, appointment_date, location, status, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE appointments SET title=?, description=?, appointment_date=?, location=?, status=? WHERE id=?";
+    private static final String DELETE_SQL = "DELETE FROM appointments WHERE id=?";
+    // Read queries, also checked by QueryPlanCheck
+    static final String FIND_BY_ID_SQL = "SELECT * FROM appointments WHERE id=?";
+    static final String FIND_BY_CUSTOMER_SQL = "SELECT * FROM appointments WHERE customer_id=?";
+    static final String PENDING_FROM_SQL = "SELECT * FROM appointments WHERE appointment_date >= ? AND status=? " +
+            "ORDER BY appointment_date";
+
+    private static final int CALENDAR_BUCKETS = Integer.getInteger("crm.calendarCache.maxBuckets", 64);
+
+    private final ChangeListeners<Appointment> listeners = new ChangeListeners<>();
+    private int batchSize = BatchWriter.DEFAULT_CHUNK_SIZE;
+    // Set by AppointmentSchedule; null means bookings are not checked for overlaps
+    private AppointmentSchedule schedule;
+    private final CalendarCache<Appointment> calendar = new CalendarCache<>(
+            (start, end) -> findBetween(start, end, null),
+            Appointment::getAppointmentId, Appointment::getAppointmentDate, AppointmentDAO::copyOf, CALENDAR_BUCKETS);
+
+    public AppointmentDAO() {
+        listeners.add(calendar);
+    }
+
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    public void addChangeListener(ChangeListener<Appointment> listener) { listeners.add(listener); }
+
+    void setSchedule(AppointmentSchedule schedule) { this.schedule = schedule; }
+
+    // Throws AppointmentConflictException when the booking overlaps another one for the customer or location
     public void addAppointment(Appointment a) throws SQLException {
-        String sql = "INSERT INTO appointments(id, customer_id, title, description, appointment_date, location, status, created_at) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        addAppointment(a, false);
+    }
 
-        try (Connection conn = DBHelper.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    public void addAppointment(Appointment a, boolean allowConflicts) throws SQLException {
+        checked(a, allowConflicts, () -> {
+            try (Connection conn = DBHelper.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
 
-            pstmt.setString(1, a.getAppointmentId().toString());
-            pstmt.setString(2, a.getCustomerId().toString().replace("-", ""));
-            pstmt.setString(3, a.getTitle());
-            pstmt.setString(4, a.getDescription());
-            pstmt.setTimestamp(5, a.getAppointmentDate() == null ? null : Timestamp.valueOf(a.getAppointmentDate()));
-            pstmt.setString(6, a.getLocation());
-            pstmt.setString(7, a.getStatus().name());
-            pstmt.setTimestamp(8, Timestamp.valueOf(a.getCreatedAt()));
+                bindInsert(pstmt, a);
+                pstmt.executeUpdate();
+            }
+            listeners.fireInserted(a);
+            return true;
+        });
+    }
 
-            pstmt.executeUpdate();
-        }
+    // Bulk loads are not checked for overlaps, so imported history always goes in as it was
+    public BatchResult addAll(Collection<Appointment> list) throws SQLException {
+        BatchResult result = BatchWriter.execute(INSERT_SQL, list, batchSize, this::bindInsert);
+        listeners.fireInserted(list, result);
+        return result;
     }
 
     public Appointment findById(UUID id) throws SQLException {
-        String sql = "SELECT * FROM appointments WHERE id=?";
+        String sql = FIND_BY_ID_SQL;
         try (Connection conn = DBHelper.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, id.toString());
+            pstmt.setBytes(1, UuidCodec.toBytes(id));
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
                 return mapResultSetToAppointment(rs);
@@ -42,11 +81,11 @@ public class AppointmentDAO {
 
     public List<Appointment> findByCustomerId(UUID customerId) throws SQLException {
         List<Appointment> list = new ArrayList<>();
-        String sql = "SELECT * FROM appointments WHERE customer_id=?";
+        String sql = FIND_BY_CUSTOMER_SQL;
         try (Connection conn = DBHelper.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, customerId.toString().replace("-", ""));
+            pstmt.setBytes(1, UuidCodec.toBytes(customerId));
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
                 list.add(mapResultSetToAppointment(rs));
@@ -55,30 +94,87 @@ public class AppointmentDAO {
         return list;
     }
 
-    public void updateAppointment(Appointment a) throws SQLException {
-        String sql = "UPDATE appointments SET title=?, description=?, appointment_date=?, location=?, status=? WHERE id=?";
+    // Appointments dated in [start, end), earliest first; a null status matches any.
+    // A range scan of idx_appointments_date.
+    public List<Appointment> findBetween(LocalDateTime start, LocalDateTime end, AppointmentStatus status)
+            throws SQLException {
+        List<Appointment> list = new ArrayList<>();
+        String sql = betweenSql(status != null);
         try (Connection conn = DBHelper.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, a.getTitle());
-            pstmt.setString(2, a.getDescription());
-            pstmt.setTimestamp(3, a.getAppointmentDate() == null ? null : Timestamp.valueOf(a.getAppointmentDate()));
-            pstmt.setString(4, a.getLocation());
-            pstmt.setString(5, a.getStatus().name());
-            pstmt.setString(6, a.getAppointmentId().toString());
+            pstmt.setTimestamp(1, Timestamp.valueOf(start));
+            pstmt.setTimestamp(2, Timestamp.valueOf(end));
+            if (status != null) {
+                pstmt.setString(3, status.name());
+            }
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                list.add(mapResultSetToAppointment(rs));
+            }
+        }
+        return list;
+    }
+
+    // Calendar views: the week (Monday to Sunday) or month containing the day, served from a cache
+    // that writes to that week or month invalidate
+    public List<Appointment> findWeek(LocalDate day, AppointmentStatus status) throws SQLException {
+        return withStatus(calendar.get(CalendarCache.Span.WEEK, day), status);
+    }
+
+    public List<Appointment> findMonth(LocalDate day, AppointmentStatus status) throws SQLException {
+        return withStatus(calendar.get(CalendarCache.Span.MONTH, day), status);
+    }
+
+    static String betweenSql(boolean withStatus) {
+        return "SELECT * FROM appointments WHERE appointment_date >= ? AND appointment_date < ?" +
+                (withStatus ? " AND status=?" : "") + " ORDER BY appointment_date";
+    }
+
+    public Map<UUID, List<Appointment>> findByCustomerIds(Collection<UUID> customerIds) throws SQLException {
+        return InListQuery.findGrouped("appointments", "customer_id", customerIds, this::mapResultSetToAppointment, Appointment::getCustomerId);
+    }
+
+    // Throws AppointmentConflictException when the new time or place overlaps another booking
+    public void updateAppointment(Appointment a) throws SQLException {
+        updateAppointment(a, false);
+    }
+
+    // The previous row is read (and locked) first only when a listener asks for it
+    public void updateAppointment(Appointment a, boolean allowConflicts) throws SQLException {
+        checked(a, allowConflicts, () -> {
+            if (listeners.needsBefore()) {
+                return UnitOfWork.inTransaction(() ->
+                        update(a, lockRows(List.of(a.getAppointmentId())).get(a.getAppointmentId())));
+            }
+            return update(a, null);
+        });
+    }
 
-            pstmt.executeUpdate();
+    public BatchResult updateAll(Collection<Appointment> list) throws SQLException {
+        if (listeners.needsBefore()) {
+            return UnitOfWork.inTransaction(() ->
+                    updateAll(list, lockRows(list.stream().map(Appointment::getAppointmentId).toList())));
         }
+        return updateAll(list, Map.of());
     }
 
     public void deleteAppointment(UUID id) throws SQLException {
-        String sql = "DELETE FROM appointments WHERE id=?";
-        try (Connection conn = DBHelper.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        if (listeners.needsBefore()) {
+            UnitOfWork.inTransaction(() -> {
+                delete(id, lockRows(List.of(id)).get(id));
+                return null;
+            });
+        } else {
+            delete(id, null);
+        }
+    }
 
-            pstmt.setString(1, id.toString());
-            pstmt.executeUpdate();
+    public BatchResult deleteAll(Collection<UUID> ids) throws SQLException {
+        if (listeners.needsBefore()) {
+            return UnitOfWork.inTransaction(() -> deleteAll(ids, lockRows(ids)));
         }
+        return deleteAll(ids, Map.of());
     }
 
     public List<Appointment> findAll() throws SQLException {
@@ -95,9 +191,128 @@ public class AppointmentDAO {
         return list;
     }
 
-    private Appointment mapResultSetToAppointment(ResultSet rs) throws SQLException {
-        UUID id = UUID.fromString(rs.getString("id"));
-        UUID customerId = UUID.fromString(rs.getString("customer_id"));
+    public Stream<Appointment> streamAll() throws SQLException {
+        return RowStreams.stream("SELECT * FROM appointments", this::mapResultSetToAppointment);
+    }
+
+    public Stream<Appointment> streamByCustomerId(UUID customerId) throws SQLException {
+        return RowStreams.stream(FIND_BY_CUSTOMER_SQL, this::mapResultSetToAppointment,
+                UuidCodec.toBytes(customerId));
+    }
+
+    // PENDING appointments from the given time on, earliest first; a range scan of idx_appointments_date
+    public Stream<Appointment> streamPendingFrom(LocalDateTime from) throws SQLException {
+        return RowStreams.stream(PENDING_FROM_SQL, this::mapResultSetToAppointment,
+                Timestamp.valueOf(from), AppointmentStatus.PENDING.name());
+    }
+
+    public Page<Appointment> findPage(int pageSize, String cursor) throws SQLException {
+        return KeysetPager.fetch("appointments", pageSize, cursor, this::mapResultSetToAppointment);
+    }
+
+    public long count() throws SQLException {
+        return KeysetPager.count("appointments");
+    }
+
+    public String skipCursor(String cursor, long rows) throws SQLException {
+        return KeysetPager.skip("appointments", cursor, rows);
+    }
+
+    private static List<Appointment> withStatus(List<Appointment> list, AppointmentStatus status) {
+        if (status == null) {
+            return list;
+        }
+        List<Appointment> matching = new ArrayList<>();
+        for (Appointment a : list) {
+            if (a.getStatus() == status) {
+                matching.add(a);
+            }
+        }
+        return matching;
+    }
+
+    // write returns whether it stored the appointment
+    private void checked(Appointment a, boolean allowConflicts, SqlCall<Boolean> write) throws SQLException {
+        if (schedule == null) {
+            write.call();
+        } else {
+            schedule.guard(a, allowConflicts, write);
+        }
+    }
+
+    private static Appointment copyOf(Appointment a) {
+        return new Appointment(a.getAppointmentId(), a.getCustomerId(), a.getTitle(), a.getDescription(),
+                a.getAppointmentDate(), a.getLocation(), a.getStatus(), a.getCreatedAt());
+    }
+
+    // True when the row was there to update
+    private boolean update(Appointment a, Appointment before) throws SQLException {
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(UPDATE_SQL)) {
+
+            bindUpdate(pstmt, a);
+            if (pstmt.executeUpdate() > 0) {
+                listeners.fireUpdated(before, a);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private BatchResult updateAll(Collection<Appointment> list, Map<UUID, Appointment> before) throws SQLException {
+        BatchResult result = BatchWriter.execute(UPDATE_SQL, list, batchSize, this::bindUpdate);
+        listeners.fireUpdated(before, list, Appointment::getAppointmentId, result);
+        return result;
+    }
+
+    private void delete(UUID id, Appointment before) throws SQLException {
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(DELETE_SQL)) {
+
+            bindDelete(pstmt, id);
+            if (pstmt.executeUpdate() > 0) {
+                listeners.fireDeleted(id, before);
+            }
+        }
+    }
+
+    private BatchResult deleteAll(Collection<UUID> ids, Map<UUID, Appointment> before) throws SQLException {
+        BatchResult result = BatchWriter.execute(DELETE_SQL, ids, batchSize, this::bindDelete);
+        listeners.fireDeleted(before, ids, result);
+        return result;
+    }
+
+    private Map<UUID, Appointment> lockRows(Collection<UUID> ids) throws SQLException {
+        return InListQuery.lock("appointments", ids, this::mapResultSetToAppointment, Appointment::getAppointmentId);
+    }
+
+    private void bindInsert(PreparedStatement pstmt, Appointment a) throws SQLException {
+        pstmt.setBytes(1, UuidCodec.toBytes(a.getAppointmentId()));
+        pstmt.setBytes(2, UuidCodec.toBytes(a.getCustomerId()));
+        pstmt.setString(3, a.getTitle());
+        pstmt.setString(4, a.getDescription());
+        pstmt.setTimestamp(5, a.getAppointmentDate() == null ? null : Timestamp.valueOf(a.getAppointmentDate()));
+        pstmt.setString(6, a.getLocation());
+        pstmt.setString(7, a.getStatus().name());
+        pstmt.setTimestamp(8, Timestamp.valueOf(a.getCreatedAt()));
+    }
+
+    private void bindUpdate(PreparedStatement pstmt, Appointment a) throws SQLException {
+        pstmt.setString(1, a.getTitle());
+        pstmt.setString(2, a.getDescription());
+        pstmt.setTimestamp(3, a.getAppointmentDate() == null ? null : Timestamp.valueOf(a.getAppointmentDate()));
+        pstmt.setString(4, a.getLocation());
+        pstmt.setString(5, a.getStatus().name());
+        pstmt.setBytes(6, UuidCodec.toBytes(a.getAppointmentId()));
+    }
+
+    private void bindDelete(PreparedStatement pstmt, UUID id) throws SQLException {
+        pstmt.setBytes(1, UuidCodec.toBytes(id));
+    }
+
+    public Appointment mapResultSetToAppointment(ResultSet rs) throws SQLException {
+        UUID id = UuidCodec.read(rs, "id");
+        UUID customerId = UuidCodec.read(rs, "customer_id");
         String title = rs.getString("title");
         String description = rs.getString("description");
         Timestamp appTs = rs.getTimestamp("appointment_date");
@@ -106,9 +321,6 @@ public class AppointmentDAO {
         AppointmentStatus status = AppointmentStatus.valueOf(rs.getString("status"));
         LocalDateTime createdAt = rs.getTimestamp("created_at").toLocalDateTime();
 
-        Appointment a = new Appointment(customerId, title, description, appDate, location, status);
-        a.setCreatedAt(createdAt);
-        a.setAppointmentId(id);
-        return a;
+        return new Appointment(id, customerId, title, description, appDate, location, status, createdAt);
     }
 }
@@ -0,0 +1,250 @@
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// In-memory booking index for conflict checks: one IntervalTree per customer and one per location,
+// holding the PENDING appointments (done and cancelled ones free their slot).
+// Appointments only store a start time, so every booking is taken to last one slot.
+//
+// Creating a schedule attaches it to the DAO: addAppointment/updateAppointment then reject overlapping
+// bookings, and the DAO's change listener keeps the trees current. load() fills in the upcoming
+// appointments already in the database.
+// Inside a UnitOfWork the listener only hears about a booking at commit, so the write path books it right
+// away instead (and takes it back if the unit rolls back); later checks in the same unit or on other
+// threads then see it.
+public class AppointmentSchedule {
+
+    // -Dcrm.appointments.slotMinutes
+    private static final long SLOT_MINUTES = Long.getLong("crm.appointments.slotMinutes", 60);
+
+    private final AppointmentDAO appointmentDAO;
+    private final long slotSeconds;
+    // Held from the conflict check until the write is done, so two bookings cannot both take a free slot
+    private final ReentrantLock writeGate = new ReentrantLock();
+
+    // Guarded by this
+    private final Map<UUID, IntervalTree> byCustomer = new HashMap<>();
+    private final Map<String, IntervalTree> byLocation = new HashMap<>();
+    private final Map<UUID, Booking> bookings = new HashMap<>();
+    // Ids written through the DAO while load() is running; see SearchService
+    private Set<UUID> touched;
+
+    public AppointmentSchedule(AppointmentDAO appointmentDAO) {
+        this(appointmentDAO, Duration.ofMinutes(SLOT_MINUTES));
+    }
+
+    public AppointmentSchedule(AppointmentDAO appointmentDAO, Duration slot) {
+        this.appointmentDAO = appointmentDAO;
+        this.slotSeconds = slot.getSeconds();
+
+        appointmentDAO.addChangeListener(new ChangeListener<>() {
+            @Override
+            public void inserted(Appointment a) { apply(a.getAppointmentId(), a); }
+
+            @Override
+            public void updated(Appointment a) { apply(a.getAppointmentId(), a); }
+
+            @Override
+            public void deleted(UUID id) { apply(id, null); }
+        });
+        appointmentDAO.setSchedule(this);
+    }
+
+    public Duration getSlotLength() { return Duration.ofSeconds(slotSeconds); }
+
+    // Loads the appointments that can still conflict with new bookings
+    public void load() throws SQLException {
+        synchronized (this) {
+            touched = new HashSet<>();
+        }
+        LocalDateTime from = LocalDateTime.now().minusSeconds(slotSeconds);
+        try (Stream<Appointment> upcoming = appointmentDAO.streamPendingFrom(from)) {
+            upcoming.forEach(a -> {
+                synchronized (this) {
+                    if (!touched.contains(a.getAppointmentId())) {
+                        book(a.getAppointmentId(), a);
+                    }
+                }
+            });
+        } catch (UncheckedSQLException ex) {
+            throw ex.getCause();
+        } finally {
+            synchronized (this) {
+                touched = null;
+            }
+        }
+    }
+
+    // ----------------------------
+    // QUERIES
+    // ----------------------------
+    // Bookings the appointment would overlap, for its customer and at its location; itself excluded
+    public synchronized List<AppointmentConflict> findConflicts(Appointment a) {
+        List<AppointmentConflict> conflicts = new ArrayList<>();
+        if (!blocksSlot(a)) {
+            return conflicts;
+        }
+        long start = toSeconds(a.getAppointmentDate());
+        addConflicts(conflicts, byCustomer.get(a.getCustomerId()), start, a.getAppointmentId(),
+                AppointmentConflict.Kind.CUSTOMER);
+        addConflicts(conflicts, byLocation.get(locationKey(a.getLocation())), start, a.getAppointmentId(),
+                AppointmentConflict.Kind.LOCATION);
+        return conflicts;
+    }
+
+    // Earliest start at or after "from" where a slot is free for both the customer and the location
+    // (either may be null). Each step jumps past the latest booking in the way.
+    public synchronized LocalDateTime nextFreeSlot(UUID customerId, String location, LocalDateTime from) {
+        IntervalTree customer = customerId == null ? null : byCustomer.get(customerId);
+        IntervalTree place = byLocation.get(locationKey(location));
+        long start = toSeconds(from);
+        while (true) {
+            long blockedUntil = Math.max(latestEnd(customer, start), latestEnd(place, start));
+            if (blockedUntil == Long.MIN_VALUE) {
+                return fromSeconds(start);
+            }
+            start = blockedUntil;
+        }
+    }
+
+    public synchronized int size() { return bookings.size(); }
+
+    // ----------------------------
+    // WRITE PATH (AppointmentDAO)
+    // ----------------------------
+    // write returns whether it stored the appointment
+    void guard(Appointment a, boolean allowConflicts, SqlCall<Boolean> write) throws SQLException {
+        writeGate.lock();
+        try {
+            if (!allowConflicts) {
+                List<AppointmentConflict> conflicts = findConflicts(a);
+                if (!conflicts.isEmpty()) {
+                    throw new AppointmentConflictException(conflicts);
+                }
+            }
+            if (write.call() && UnitOfWork.isActive()) {
+                UUID id = a.getAppointmentId();
+                Booking previous = apply(id, a);
+                UnitOfWork.afterRollback(() -> restore(id, previous));
+            }
+        } finally {
+            writeGate.unlock();
+        }
+    }
+
+    // ----------------------------
+    // HELPER METHODS
+    // ----------------------------
+    // A null appointment means it was deleted. Applying the same version twice changes nothing, so the
+    // event that follows a booking made by guard() is harmless.
+    private synchronized Booking apply(UUID id, Appointment a) {
+        if (touched != null) {
+            touched.add(id);
+        }
+        return book(id, a);
+    }
+
+    // Puts back what guard() replaced when its unit of work rolls back
+    private synchronized void restore(UUID id, Booking previous) {
+        if (touched != null) {
+            touched.add(id);
+        }
+        place(id, previous);
+    }
+
+    private Booking book(UUID id, Appointment a) {
+        if (a == null || !blocksSlot(a)) {
+            return place(id, null);
+        }
+        return place(id, new Booking(a.getCustomerId(), locationKey(a.getLocation()), toSeconds(a.getAppointmentDate())));
+    }
+
+    // Replaces the booking held for the id (null just removes it) and returns the one it had
+    private Booking place(UUID id, Booking booking) {
+        Booking old = bookings.remove(id);
+        if (old != null) {
+            removeFrom(byCustomer, old.customerId, id, old.start);
+            removeFrom(byLocation, old.location, id, old.start);
+        }
+        if (booking == null) {
+            return old;
+        }
+
+        long start = booking.start;
+        bookings.put(id, booking);
+        byCustomer.computeIfAbsent(booking.customerId, k -> new IntervalTree()).add(id, start, start + slotSeconds);
+        if (booking.location != null) {
+            byLocation.computeIfAbsent(booking.location, k -> new IntervalTree()).add(id, start, start + slotSeconds);
+        }
+        return old;
+    }
+
+    private static <K> void removeFrom(Map<K, IntervalTree> trees, K key, UUID id, long start) {
+        if (key == null) {
+            return;
+        }
+        IntervalTree tree = trees.get(key);
+        tree.remove(id, start);
+        if (tree.size() == 0) {
+            trees.remove(key);
+        }
+    }
+
+    private void addConflicts(List<AppointmentConflict> conflicts, IntervalTree tree, long start, UUID self,
+                              AppointmentConflict.Kind kind) {
+        if (tree == null) {
+            return;
+        }
+        for (UUID other : tree.overlapping(start, start + slotSeconds, self)) {
+            conflicts.add(new AppointmentConflict(other, kind, fromSeconds(bookings.get(other).start)));
+        }
+    }
+
+    private long latestEnd(IntervalTree tree, long start) {
+        return tree == null ? Long.MIN_VALUE : tree.latestEndOverlapping(start, start + slotSeconds, null);
+    }
+
+    private static boolean blocksSlot(Appointment a) {
+        return a.getStatus() == AppointmentStatus.PENDING && a.getAppointmentDate() != null && a.getCustomerId() != null;
+    }
+
+    // "Room 1" and " room 1 " are the same place; no location means no location conflicts
+    private static String locationKey(String location) {
+        if (location == null || location.isBlank()) {
+            return null;
+        }
+        return location.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Appointment times are wall-clock LocalDateTimes, so plain arithmetic on them is what is wanted
+    private static long toSeconds(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime fromSeconds(long seconds) {
+        return LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+    private static class Booking {
+        private final UUID customerId;
+        private final String location;
+        private final long start;
+
+        Booking(UUID customerId, String location, long start) {
+            this.customerId = customerId;
+            this.location = location;
+            this.start = start;
+        }
+    }
+}
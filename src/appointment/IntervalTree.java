@@ -0,0 +1,190 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Half-open intervals [start, end) keyed by id, in an AVL tree ordered by (start, id).
+// Every node also knows the latest end in its subtree, so an overlap query can skip
+// whole subtrees: O(log n) to find whether anything overlaps, O(log n + k) to list k overlaps.
+public class IntervalTree {
+
+    private Node root;
+    private int size;
+
+    public void add(UUID id, long start, long end) {
+        root = insert(root, id, start, end);
+        size++;
+    }
+
+    // The start must be the one the interval was added with
+    public void remove(UUID id, long start) {
+        int before = size;
+        root = delete(root, id, start);
+        if (size == before) {
+            throw new IllegalStateException("No interval " + id + " starting at " + start);
+        }
+    }
+
+    public int size() { return size; }
+
+    // Ids of the intervals overlapping [start, end), except the one given (null excludes nothing)
+    public List<UUID> overlapping(long start, long end, UUID exclude) {
+        List<UUID> ids = new ArrayList<>();
+        collect(root, start, end, exclude, ids);
+        return ids;
+    }
+
+    // Latest end among the intervals overlapping [start, end), or Long.MIN_VALUE when nothing overlaps.
+    // A free slot cannot begin before it.
+    public long latestEndOverlapping(long start, long end, UUID exclude) {
+        return latestEnd(root, start, end, exclude);
+    }
+
+    // ----------------------------
+    // QUERIES
+    // ----------------------------
+    private static void collect(Node node, long start, long end, UUID exclude, List<UUID> ids) {
+        if (node == null || node.maxEnd <= start) {
+            return;
+        }
+        collect(node.left, start, end, exclude, ids);
+        if (node.start >= end) {
+            // Everything to the right starts even later
+            return;
+        }
+        if (node.end > start && !node.id.equals(exclude)) {
+            ids.add(node.id);
+        }
+        collect(node.right, start, end, exclude, ids);
+    }
+
+    private static long latestEnd(Node node, long start, long end, UUID exclude) {
+        if (node == null || node.maxEnd <= start) {
+            return Long.MIN_VALUE;
+        }
+        long latest = latestEnd(node.left, start, end, exclude);
+        if (node.start >= end) {
+            return latest;
+        }
+        if (node.end > start && !node.id.equals(exclude)) {
+            latest = Math.max(latest, node.end);
+        }
+        return Math.max(latest, latestEnd(node.right, start, end, exclude));
+    }
+
+    // ----------------------------
+    // AVL MAINTENANCE
+    // ----------------------------
+    private Node insert(Node node, UUID id, long start, long end) {
+        if (node == null) {
+            return new Node(id, start, end);
+        }
+        if (compare(id, start, node) < 0) {
+            node.left = insert(node.left, id, start, end);
+        } else {
+            node.right = insert(node.right, id, start, end);
+        }
+        return rebalance(node);
+    }
+
+    private Node delete(Node node, UUID id, long start) {
+        if (node == null) {
+            return null;
+        }
+        int c = compare(id, start, node);
+        if (c < 0) {
+            node.left = delete(node.left, id, start);
+        } else if (c > 0) {
+            node.right = delete(node.right, id, start);
+        } else {
+            size--;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // Take over the successor's interval, then remove the successor from the right subtree
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            node.id = successor.id;
+            node.start = successor.start;
+            node.end = successor.end;
+            size++;
+            node.right = delete(node.right, successor.id, successor.start);
+        }
+        return rebalance(node);
+    }
+
+    private static int compare(UUID id, long start, Node node) {
+        int c = Long.compare(start, node.start);
+        return c != 0 ? c : id.compareTo(node.id);
+    }
+
+    private static Node rebalance(Node node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        node.maxEnd = Math.max(node.end, Math.max(maxEnd(node.left), maxEnd(node.right)));
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static long maxEnd(Node node) {
+        return node == null ? Long.MIN_VALUE : node.maxEnd;
+    }
+
+    private static class Node {
+        private UUID id;
+        private long start;
+        private long end;
+        private long maxEnd;
+        private int height = 1;
+        private Node left;
+        private Node right;
+
+        Node(UUID id, long start, long end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+    }
+}
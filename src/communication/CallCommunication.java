@@ -1,27 +1,36 @@
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 public class CallCommunication extends Communication {
 
-    private int callDurationSeconds;
+    // Null when the duration was not recorded
+    private Integer callDurationSeconds;
     private CallOutcome outcome;
 
     public CallCommunication(UUID customerId, String subject, String message,
-                             int callDurationSeconds, CallOutcome outcome) {
+                             Integer callDurationSeconds, CallOutcome outcome) {
         super(customerId, subject, message, CommunicationType.CALL);
         this.callDurationSeconds = callDurationSeconds;
         this.outcome = outcome;
     }
 
-    public int getCallDurationSeconds() { return callDurationSeconds; }
+    public CallCommunication(UUID communicationId, UUID customerId, String subject, String message,
+                             LocalDateTime createdAt, Integer callDurationSeconds, CallOutcome outcome) {
+        super(communicationId, customerId, subject, message, CommunicationType.CALL, createdAt);
+        this.callDurationSeconds = callDurationSeconds;
+        this.outcome = outcome;
+    }
+
+    public Integer getCallDurationSeconds() { return callDurationSeconds; }
     public CallOutcome getOutcome() { return outcome; }
 
-    public void setCallDurationSeconds(int seconds) { this.callDurationSeconds = seconds; }
+    public void setCallDurationSeconds(Integer seconds) { this.callDurationSeconds = seconds; }
     public void setOutcome(CallOutcome outcome) { this.outcome = outcome; }
 
     @Override
     public String toString() {
         return super.toString() +
-                "\nCall Duration: " + callDurationSeconds + " sec" +
+                "\nCall Duration: " + (callDurationSeconds != null ? callDurationSeconds + " sec" : "Unknown") +
                 "\nOutcome: " + outcome;
     }
 }
@@ -1,4 +1,4 @@
-public enum CallOutCome {
+public enum CallOutcome {
     ANSWERED,
     MISSED,
     DECLINED
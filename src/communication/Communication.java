@@ -17,12 +17,18 @@ public abstract class Communication {
 
     // Constructor
     public Communication(UUID customerId, String subject, String message, CommunicationType type) {
-        this.communicationId = UUID.randomUUID();
+        this(Ids.next(), customerId, subject, message, type, LocalDateTime.now());
+    }
+
+    // A stored communication: keeps its id and creation time instead of generating new ones
+    public Communication(UUID communicationId, UUID customerId, String subject, String message,
+                         CommunicationType type, LocalDateTime createdAt) {
+        this.communicationId = communicationId;
         this.customerId = customerId;
         this.subject = subject;
         this.message = message;
         this.type = type;
-        this.createdAt = LocalDateTime.now();
+        this.createdAt = createdAt;
     }
 
     // Getters
@@ -1,36 +1,66 @@
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public class CommunicationDAO {
 
-    // Προσθήκη νέας επικοινωνίας
+    // Τα πεδία των υποτύπων (κλήση, email) είναι στήλες του ίδιου πίνακα, NULL για τους άλλους τύπους
+    private static final String INSERT_SQL = "INSERT INTO communications(id, customer_id, title, description, status, created_at, " +
+            "call_duration_seconds, call_outcome, recipient_email, attachment_name) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE communications SET title=?, description=?, status=?, " +
+            "call_duration_seconds=?, call_outcome=?, recipient_email=?, attachment_name=? WHERE id=?";
+    private static final String DELETE_SQL = "DELETE FROM communications WHERE id=?";
+    // Ερωτήματα ανάγνωσης, που ελέγχει και το QueryPlanCheck
+    static final String FIND_BY_ID_SQL = "SELECT * FROM communications WHERE id=?";
+    static final String FIND_BY_CUSTOMER_SQL = "SELECT * FROM communications WHERE customer_id=?";
+
+    private final ChangeListeners<Communication> listeners = new ChangeListeners<>();
+    private int batchSize = BatchWriter.DEFAULT_CHUNK_SIZE;
+    // Όταν υπάρχει, η addCommunication γράφει στο τοπικό log και η βάση ενημερώνεται αργότερα
+    private volatile CommunicationWriteBehind writeBehind;
+
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    // Ειδοποίηση για κάθε επιτυχημένη εγγραφή
+    public void addChangeListener(ChangeListener<Communication> listener) { listeners.add(listener); }
+
+    void setWriteBehind(CommunicationWriteBehind writeBehind) { this.writeBehind = writeBehind; }
+
+    // Προσθήκη νέας επικοινωνίας (σε write-behind mode εμφανίζεται στη βάση μετά το flush,
+    // εκτός αν είμαστε μέσα σε UnitOfWork, οπότε γράφεται στη συναλλαγή του)
     public void addCommunication(Communication c) throws SQLException {
-        String sql = "INSERT INTO communications(id, customer_id, title, description, status, created_at) " +
-                "VALUES (?, ?, ?, ?, ?, ?)";
+        if (writeBehind != null && !UnitOfWork.isActive()) {
+            writeBehind.append(c);
+            return;
+        }
         try (Connection conn = DBHelper.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, c.getCommunicationId().toString());
-            pstmt.setString(2, c.getCustomerId().toString());
-            pstmt.setString(3, c.getSubject());
-            pstmt.setString(4, c.getMessage());
-            pstmt.setString(5, c.getType().name());
-            pstmt.setTimestamp(6, Timestamp.valueOf(c.getCreatedAt()));
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
 
+            bindInsert(pstmt, c);
             pstmt.executeUpdate();
         }
+        listeners.fireInserted(c);
+    }
+
+    // Μαζική προσθήκη επικοινωνιών σε μία συναλλαγή
+    public BatchResult addAll(Collection<Communication> list) throws SQLException {
+        BatchResult result = BatchWriter.execute(INSERT_SQL, list, batchSize, this::bindInsert);
+        listeners.fireInserted(list, result);
+        return result;
     }
 
     // Βρες επικοινωνία με βάση το ID
     public Communication findById(UUID id) throws SQLException {
-        String sql = "SELECT * FROM communications WHERE id=?";
+        String sql = FIND_BY_ID_SQL;
         try (Connection conn = DBHelper.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, id.toString());
+            pstmt.setBytes(1, UuidCodec.toBytes(id));
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
                 return mapResultSetToCommunication(rs);
@@ -42,11 +72,11 @@ public class CommunicationDAO {
     // Βρες όλες τις επικοινωνίες για έναν πελάτη
     public List<Communication> findByCustomerId(UUID customerId) throws SQLException {
         List<Communication> list = new ArrayList<>();
-        String sql = "SELECT * FROM communications WHERE customer_id=?";
+        String sql = FIND_BY_CUSTOMER_SQL;
         try (Connection conn = DBHelper.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, customerId.toString());
+            pstmt.setBytes(1, UuidCodec.toBytes(customerId));
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
                 list.add(mapResultSetToCommunication(rs));
@@ -55,30 +85,65 @@ public class CommunicationDAO {
         return list;
     }
 
-    // Ενημέρωση επικοινωνίας
-    public void updateCommunication(Communication c) throws SQLException {
-        String sql = "UPDATE communications SET title=?, description=?, status=? WHERE id=?";
-        try (Connection conn = DBHelper.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    // Πολλές επικοινωνίες με ένα IN-list query, με τη σειρά των ids (όσα δεν υπάρχουν παραλείπονται)
+    public List<Communication> findByIds(Collection<UUID> ids) throws SQLException {
+        Map<UUID, List<Communication>> rows = InListQuery.findGrouped("communications", "id", ids,
+                this::mapResultSetToCommunication, Communication::getCommunicationId);
+        List<Communication> list = new ArrayList<>(rows.size());
+        for (UUID id : ids) {
+            list.addAll(rows.getOrDefault(id, List.of()));
+        }
+        return list;
+    }
 
-            pstmt.setString(1, c.getSubject());
-            pstmt.setString(2, c.getMessage());
-            pstmt.setString(3, c.getType().name());
-            pstmt.setString(4, c.getCommunicationId().toString());
+    // Επικοινωνίες πολλών πελατών, ομαδοποιημένες ανά πελάτη
+    public Map<UUID, List<Communication>> findByCustomerIds(Collection<UUID> customerIds) throws SQLException {
+        return InListQuery.findGrouped("communications", "customer_id", customerIds, this::mapResultSetToCommunication, Communication::getCustomerId);
+    }
 
-            pstmt.executeUpdate();
+    // Ενημέρωση επικοινωνίας· η προηγούμενη γραμμή διαβάζεται (και κλειδώνεται) πρώτα μόνο όταν τη ζητά κάποιος listener
+    public void updateCommunication(Communication c) throws SQLException {
+        awaitWriteBehind();
+        if (listeners.needsBefore()) {
+            UnitOfWork.inTransaction(() -> {
+                update(c, lockRows(List.of(c.getCommunicationId())).get(c.getCommunicationId()));
+                return null;
+            });
+        } else {
+            update(c, null);
         }
     }
 
+    // Μαζική ενημέρωση επικοινωνιών
+    public BatchResult updateAll(Collection<Communication> list) throws SQLException {
+        awaitWriteBehind();
+        if (listeners.needsBefore()) {
+            return UnitOfWork.inTransaction(() ->
+                    updateAll(list, lockRows(list.stream().map(Communication::getCommunicationId).toList())));
+        }
+        return updateAll(list, Map.of());
+    }
+
     // Διαγραφή επικοινωνίας
     public void deleteCommunication(UUID id) throws SQLException {
-        String sql = "DELETE FROM communications WHERE id=?";
-        try (Connection conn = DBHelper.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        awaitWriteBehind();
+        if (listeners.needsBefore()) {
+            UnitOfWork.inTransaction(() -> {
+                delete(id, lockRows(List.of(id)).get(id));
+                return null;
+            });
+        } else {
+            delete(id, null);
+        }
+    }
 
-            pstmt.setString(1, id.toString());
-            pstmt.executeUpdate();
+    // Μαζική διαγραφή επικοινωνιών
+    public BatchResult deleteAll(Collection<UUID> ids) throws SQLException {
+        awaitWriteBehind();
+        if (listeners.needsBefore()) {
+            return UnitOfWork.inTransaction(() -> deleteAll(ids, lockRows(ids)));
         }
+        return deleteAll(ids, Map.of());
     }
 
     // Φόρτωση όλων των επικοινωνιών
@@ -96,22 +161,156 @@ public class CommunicationDAO {
         return list;
     }
 
-    // Χαρτογράφηση ResultSet σε Communication
-    private Communication mapResultSetToCommunication(ResultSet rs) throws SQLException {
-        UUID id = UUID.fromString(rs.getString("id"));
-        UUID customerId = UUID.fromString(rs.getString("customer_id"));
+    // Ροή όλων των επικοινωνιών χωρίς φόρτωση σε λίστα (κλείστε το Stream)
+    public Stream<Communication> streamAll() throws SQLException {
+        return RowStreams.stream("SELECT * FROM communications", this::mapResultSetToCommunication);
+    }
+
+    // Ροή των επικοινωνιών ενός πελάτη
+    public Stream<Communication> streamByCustomerId(UUID customerId) throws SQLException {
+        return RowStreams.stream(FIND_BY_CUSTOMER_SQL, this::mapResultSetToCommunication,
+                UuidCodec.toBytes(customerId));
+    }
+
+    // Μία σελίδα επικοινωνιών, ταξινομημένη κατά (created_at, id)
+    public Page<Communication> findPage(int pageSize, String cursor) throws SQLException {
+        return KeysetPager.fetch("communications", pageSize, cursor, this::mapResultSetToCommunication);
+    }
+
+    // Πλήθος επικοινωνιών
+    public long count() throws SQLException {
+        return KeysetPager.count("communications");
+    }
+
+    // Μετακίνηση του δείκτη σελίδας κατά rows γραμμές
+    public String skipCursor(String cursor, long rows) throws SQLException {
+        return KeysetPager.skip("communications", cursor, rows);
+    }
+
+    private void update(Communication c, Communication before) throws SQLException {
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(UPDATE_SQL)) {
+
+            bindUpdate(pstmt, c);
+            if (pstmt.executeUpdate() > 0) {
+                listeners.fireUpdated(before, c);
+            }
+        }
+    }
+
+    private BatchResult updateAll(Collection<Communication> list, Map<UUID, Communication> before) throws SQLException {
+        BatchResult result = BatchWriter.execute(UPDATE_SQL, list, batchSize, this::bindUpdate);
+        listeners.fireUpdated(before, list, Communication::getCommunicationId, result);
+        return result;
+    }
+
+    private void delete(UUID id, Communication before) throws SQLException {
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(DELETE_SQL)) {
+
+            bindDelete(pstmt, id);
+            if (pstmt.executeUpdate() > 0) {
+                listeners.fireDeleted(id, before);
+            }
+        }
+    }
+
+    private BatchResult deleteAll(Collection<UUID> ids, Map<UUID, Communication> before) throws SQLException {
+        BatchResult result = BatchWriter.execute(DELETE_SQL, ids, batchSize, this::bindDelete);
+        listeners.fireDeleted(before, ids, result);
+        return result;
+    }
+
+    // Μια ενημέρωση ή διαγραφή περιμένει πρώτα να φτάσουν στη βάση όσες επικοινωνίες είναι ακόμη στο log,
+    // αλλιώς δεν θα έβρισκε τη γραμμή και το flush θα έγραφε αργότερα την παλιά μορφή της
+    private void awaitWriteBehind() throws SQLException {
+        CommunicationWriteBehind pending = writeBehind;
+        if (pending != null) {
+            pending.awaitFlushed();
+        }
+    }
+
+    // Για το write-behind: γραμμές που είχαν μπει στη βάση πριν από ένα crash, χωρίς να ειδοποιηθούν οι listeners
+    void fireRecovered(Communication c) { listeners.fireInserted(c); }
+
+    // Οι τρέχουσες γραμμές, κλειδωμένες ως το τέλος του UnitOfWork
+    private Map<UUID, Communication> lockRows(Collection<UUID> ids) throws SQLException {
+        return InListQuery.lock("communications", ids, this::mapResultSetToCommunication, Communication::getCommunicationId);
+    }
+
+    private void bindInsert(PreparedStatement pstmt, Communication c) throws SQLException {
+        pstmt.setBytes(1, UuidCodec.toBytes(c.getCommunicationId()));
+        pstmt.setBytes(2, UuidCodec.toBytes(c.getCustomerId()));
+        pstmt.setString(3, c.getSubject());
+        pstmt.setString(4, c.getMessage());
+        pstmt.setString(5, c.getType().name());
+        pstmt.setTimestamp(6, Timestamp.valueOf(c.getCreatedAt()));
+        bindSubtype(pstmt, 7, c);
+    }
+
+    private void bindUpdate(PreparedStatement pstmt, Communication c) throws SQLException {
+        pstmt.setString(1, c.getSubject());
+        pstmt.setString(2, c.getMessage());
+        pstmt.setString(3, c.getType().name());
+        bindSubtype(pstmt, 4, c);
+        pstmt.setBytes(8, UuidCodec.toBytes(c.getCommunicationId()));
+    }
+
+    // Τέσσερις παράμετροι από τη θέση index: διάρκεια, αποτέλεσμα κλήσης, παραλήπτης, συνημμένο
+    private void bindSubtype(PreparedStatement pstmt, int index, Communication c) throws SQLException {
+        Integer duration = null;
+        String outcome = null;
+        String recipient = null;
+        String attachment = null;
+        if (c instanceof CallCommunication) {
+            CallCommunication call = (CallCommunication) c;
+            duration = call.getCallDurationSeconds();
+            outcome = call.getOutcome() == null ? null : call.getOutcome().name();
+        } else if (c instanceof EmailCommunication) {
+            EmailCommunication email = (EmailCommunication) c;
+            recipient = email.getRecipientEmail();
+            attachment = email.getAttachmentName();
+        }
+        pstmt.setObject(index, duration, Types.INTEGER);
+        pstmt.setString(index + 1, outcome);
+        pstmt.setString(index + 2, recipient);
+        pstmt.setString(index + 3, attachment);
+    }
+
+    private void bindDelete(PreparedStatement pstmt, UUID id) throws SQLException {
+        pstmt.setBytes(1, UuidCodec.toBytes(id));
+    }
+
+    // Χαρτογράφηση ResultSet σε Communication, με τον σωστό υποτύπο από την ίδια γραμμή
+    public Communication mapResultSetToCommunication(ResultSet rs) throws SQLException {
+        UUID id = UuidCodec.read(rs, "id");
+        UUID customerId = UuidCodec.read(rs, "customer_id");
         String title = rs.getString("title");
         String description = rs.getString("description");
         CommunicationType type = CommunicationType.valueOf(rs.getString("status"));
         LocalDateTime createdAt = rs.getTimestamp("created_at").toLocalDateTime();
 
-        // Δημιουργούμε ένα αντικείμενο Communication
-        Communication c = new Communication(customerId, title, description, type) {
-            // Αφήνουμε abstract όπως είναι, δεν χρειαζόμαστε subclass
-        };
-        c.setCommunicationId(id);
-        c.setCreatedAt(createdAt);
+        String outcome = rs.getString("call_outcome");
+        Integer duration = rs.getObject("call_duration_seconds", Integer.class);
+        return create(id, type, customerId, title, description, createdAt, duration,
+                outcome == null ? null : CallOutcome.valueOf(outcome),
+                rs.getString("recipient_email"), rs.getString("attachment_name"));
+    }
 
-        return c;
+    // Δημιουργία του σωστού υποτύπου για αποθηκευμένη επικοινωνία (χωρίς νέο id)·
+    // τα πεδία που δεν αφορούν τον τύπο αγνοούνται
+    static Communication create(UUID id, CommunicationType type, UUID customerId, String subject, String message,
+                                LocalDateTime createdAt, Integer callDurationSeconds, CallOutcome outcome,
+                                String recipientEmail, String attachmentName) {
+        switch (type) {
+            case CALL:
+                return new CallCommunication(id, customerId, subject, message, createdAt, callDurationSeconds, outcome);
+            case EMAIL:
+                return new EmailCommunication(id, customerId, subject, message, createdAt, recipientEmail, attachmentName);
+            default:
+                return new Communication(id, customerId, subject, message, type, createdAt) {
+                    // Οι συναντήσεις δεν έχουν δικά τους πεδία
+                };
+        }
     }
 }
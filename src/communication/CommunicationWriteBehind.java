@@ -0,0 +1,312 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Write-behind for CommunicationDAO.addCommunication: the call appends the communication to a local
+// DurableLog and returns as soon as it is on disk (one fsync shared by every concurrent caller), and a
+// background flusher inserts the log into MySQL in batches with CommunicationDAO.addAll.
+//
+// While the database is down the log simply grows and the flusher retries with backoff. Entries not yet
+// flushed when the application stops are replayed on the next start. A replayed entry whose insert had
+// already committed is recognised by its id; it is not inserted again, but the change listeners, which the
+// crash kept from hearing about it, are told now. An entry the database refuses for good with an
+// integrity error (its customer was deleted, say) goes to communications.rejected.csv so the flusher can
+// move on. Any other failure leaves the batch in the log to be retried.
+//
+// New communications reach the database, and the DAO change listeners, only when they are flushed,
+// normally within milliseconds; reads in between do not see them yet. Updates and deletes go straight to
+// the database, so the DAO first waits (awaitFlushed) for the log to catch up with them.
+public class CommunicationWriteBehind implements AutoCloseable {
+
+    // -Dcrm.writeBehind.batchSize, -Dcrm.writeBehind.maxRetryMillis, -Dcrm.writeBehind.flushWaitMillis
+    private static final int BATCH_SIZE = Integer.getInteger("crm.writeBehind.batchSize", 500);
+    private static final long MAX_RETRY_MILLIS = Long.getLong("crm.writeBehind.maxRetryMillis", 30_000);
+    private static final long FLUSH_WAIT_MILLIS = Long.getLong("crm.writeBehind.flushWaitMillis", 10_000);
+    private static final long IDLE_WAIT_MILLIS = 1_000;
+    private static final long CLOSE_TIMEOUT_MILLIS = 5_000;
+
+    // Version 1 stored the call duration as a plain int; version 2 can store it as null
+    private static final int FORMAT_VERSION = 2;
+    private static final int PLAIN = 0;
+    private static final int CALL = 1;
+    private static final int EMAIL = 2;
+
+    private final CommunicationDAO communicationDAO;
+    private final DurableLog log;
+    private final Path rejectsFile;
+    private final Thread flusher;
+    // Also notified by the flusher each time it moves the flushed position
+    private final Object wakeup = new Object();
+    private volatile boolean closed;
+    // Flusher thread only: log position up to which addAll has gone through in this process, so the
+    // listeners have heard about those rows even if recording the position failed
+    private long applied;
+
+    public CommunicationWriteBehind(CommunicationDAO communicationDAO, Path directory) throws IOException {
+        this.communicationDAO = communicationDAO;
+        this.log = new DurableLog(directory.resolve("communications.log"));
+        this.rejectsFile = directory.resolve("communications.rejected.csv");
+
+        flusher = new Thread(this::flushLoop, "crm-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+        communicationDAO.setWriteBehind(this);
+    }
+
+    // Bytes logged but not yet in the database
+    public long getPendingBytes() { return log.pendingBytes(); }
+
+    // Stops the flusher after its current batch; whatever is left is replayed on the next start
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        synchronized (wakeup) {
+            wakeup.notifyAll();
+        }
+        try {
+            flusher.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        communicationDAO.setWriteBehind(null);
+        log.close();
+    }
+
+    // ----------------------------
+    // WRITE PATH (CommunicationDAO)
+    // ----------------------------
+    void append(Communication c) throws SQLException {
+        if (closed) {
+            throw new SQLException("Communication write-behind log is closed");
+        }
+        try {
+            log.append(encode(c));
+        } catch (IOException ex) {
+            throw new SQLException("Could not write the communication to the local log", ex);
+        }
+        synchronized (wakeup) {
+            wakeup.notifyAll();
+        }
+    }
+
+    // Returns once everything logged before the call is in the database
+    void awaitFlushed() throws SQLException {
+        long target = log.getWrittenPosition();
+        long deadline = System.currentTimeMillis() + FLUSH_WAIT_MILLIS;
+        synchronized (wakeup) {
+            while (log.getFlushedPosition() < target) {
+                long left = deadline - System.currentTimeMillis();
+                if (closed || left <= 0) {
+                    throw new SQLException("Communications still in the write-behind log could not be flushed first");
+                }
+                try {
+                    wakeup.wait(left);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted waiting for the write-behind log", ex);
+                }
+            }
+        }
+    }
+
+    // ----------------------------
+    // FLUSHER
+    // ----------------------------
+    private void flushLoop() {
+        long retryMillis = 0;
+        while (!closed) {
+            try {
+                List<DurableLog.Record> records = log.read(BATCH_SIZE);
+                if (records.isEmpty()) {
+                    synchronized (wakeup) {
+                        if (!closed && !log.hasPending()) {
+                            wakeup.wait(IDLE_WAIT_MILLIS);
+                        }
+                    }
+                    continue;
+                }
+                long end = records.get(records.size() - 1).getEnd();
+                flush(records);
+                applied = end;
+                log.markFlushed(end);
+                synchronized (wakeup) {
+                    wakeup.notifyAll();
+                }
+                retryMillis = 0;
+            } catch (SQLException | IOException ex) {
+                // Most likely the database is unreachable; the entries stay in the log until it is back
+                retryMillis = Math.min(Math.max(retryMillis * 2, 250), MAX_RETRY_MILLIS);
+                System.err.println("Write-behind flush failed, retrying in " + retryMillis + " ms: " + ex.getMessage());
+                synchronized (wakeup) {
+                    try {
+                        if (!closed) {
+                            wakeup.wait(retryMillis);
+                        }
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                return;
+            }
+        }
+    }
+
+    private void flush(List<DurableLog.Record> records) throws SQLException, IOException {
+        List<Communication> batch = new ArrayList<>(records.size());
+        List<Long> ends = new ArrayList<>(records.size());
+        for (DurableLog.Record record : records) {
+            try {
+                batch.add(decode(record.getPayload()));
+                ends.add(record.getEnd());
+            } catch (IOException | RuntimeException ex) {
+                // Retrying cannot fix a record this build cannot read
+                System.err.println("Write-behind skipped an unreadable log record: " + ex);
+            }
+        }
+
+        // A deadlock, timeout or lost connection makes addAll throw, and the whole batch is retried
+        BatchResult result = communicationDAO.addAll(batch);
+        for (Map.Entry<Integer, String> failure : result.getFailures().entrySet()) {
+            Communication c = batch.get(failure.getKey());
+            String state = result.getSqlState(failure.getKey());
+            if (state != null && !state.startsWith("23")) {
+                throw new SQLException("Write-behind insert failed: " + failure.getValue(), state);
+            }
+            // Inserted before a crash, but the flushed position was not recorded
+            Communication stored = communicationDAO.findById(c.getCommunicationId());
+            if (stored == null) {
+                // An integrity error, or a row that could not even be bound: retrying will not help
+                reject(c, failure.getValue());
+            } else if (ends.get(failure.getKey()) > applied) {
+                communicationDAO.fireRecovered(stored);
+            }
+        }
+    }
+
+    private void reject(Communication c, String reason) throws IOException {
+        boolean header = !Files.exists(rejectsFile);
+        try (Writer out = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            CsvWriter csv = new CsvWriter(out);
+            if (header) {
+                csv.writeRow("id", "customer_id", "type", "subject", "message", "created_at", "reason");
+            }
+            csv.writeRow(c.getCommunicationId(), c.getCustomerId(), c.getType(), c.getSubject(), c.getMessage(),
+                    c.getCreatedAt(), reason);
+        }
+        System.err.println("Write-behind rejected communication " + c.getCommunicationId() + ": " + reason);
+    }
+
+    // ----------------------------
+    // RECORD FORMAT
+    // ----------------------------
+    static byte[] encode(Communication c) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FORMAT_VERSION);
+        writeUuid(out, c.getCommunicationId());
+        writeUuid(out, c.getCustomerId());
+        writeString(out, c.getType().name());
+        writeString(out, c.getSubject());
+        writeString(out, c.getMessage());
+        out.writeLong(c.getCreatedAt().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(c.getCreatedAt().getNano());
+        if (c instanceof CallCommunication) {
+            CallCommunication call = (CallCommunication) c;
+            out.writeByte(CALL);
+            out.writeBoolean(call.getCallDurationSeconds() != null);
+            out.writeInt(call.getCallDurationSeconds() == null ? 0 : call.getCallDurationSeconds());
+            writeString(out, call.getOutcome() == null ? null : call.getOutcome().name());
+        } else if (c instanceof EmailCommunication) {
+            EmailCommunication email = (EmailCommunication) c;
+            out.writeByte(EMAIL);
+            writeString(out, email.getRecipientEmail());
+            writeString(out, email.getAttachmentName());
+        } else {
+            out.writeByte(PLAIN);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static Communication decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        int version = in.readByte();
+        if (version != 1 && version != FORMAT_VERSION) {
+            throw new IOException("Unknown write-behind record version " + version);
+        }
+        UUID id = readUuid(in);
+        UUID customerId = readUuid(in);
+        CommunicationType type = CommunicationType.valueOf(readString(in));
+        String subject = readString(in);
+        String message = readString(in);
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+
+        Integer duration = null;
+        CallOutcome outcome = null;
+        String recipient = null;
+        String attachment = null;
+        switch (in.readByte()) {
+            case CALL -> {
+                boolean hasDuration = version == 1 || in.readBoolean();
+                int seconds = in.readInt();
+                duration = hasDuration ? seconds : null;
+                String name = readString(in);
+                outcome = name == null ? null : CallOutcome.valueOf(name);
+            }
+            case EMAIL -> {
+                recipient = readString(in);
+                attachment = readString(in);
+            }
+            default -> { }
+        }
+
+        return CommunicationDAO.create(id, type, customerId, subject, message, createdAt, duration, outcome,
+                recipient, attachment);
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    // Length-prefixed UTF-8, -1 for null
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
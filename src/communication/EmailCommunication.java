@@ -1,3 +1,4 @@
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 public class EmailCommunication extends Communication {
@@ -12,6 +13,13 @@ public class EmailCommunication extends Communication {
         this.attachmentName = attachmentName;
     }
 
+    public EmailCommunication(UUID communicationId, UUID customerId, String subject, String message,
+                              LocalDateTime createdAt, String recipientEmail, String attachmentName) {
+        super(communicationId, customerId, subject, message, CommunicationType.EMAIL, createdAt);
+        this.recipientEmail = recipientEmail;
+        this.attachmentName = attachmentName;
+    }
+
     public String getRecipientEmail() { return recipientEmail; }
     public String getAttachmentName() { return attachmentName; }
 
@@ -18,13 +18,19 @@ public class Customer {
 
     //Constructor
     public Customer(String fullName, String phone, String email, Category category, String notes) {
-        this.customerId = UUID.randomUUID();
+        this(Ids.next(), fullName, phone, email, category, notes, LocalDateTime.now());
+    }
+
+    // A stored customer: keeps its id and creation time instead of generating new ones
+    public Customer(UUID customerId, String fullName, String phone, String email, Category category, String notes,
+                    LocalDateTime createdAt) {
+        this.customerId = customerId;
         this.fullName = fullName;
         this.phone = phone;
-        this.email = this.email;
-        this.category = this.category;
-        this.notes = this.notes;
-        this.createdAt = LocalDateTime.now();
+        this.email = email;
+        this.category = category;
+        this.notes = notes;
+        this.createdAt = createdAt;
     }
 
     //Getters
@@ -0,0 +1,33 @@
+import java.util.Collections;
+import java.util.List;
+
+// A customer together with their tasks, appointments and communications, newest first
+public class Customer360 {
+
+    private final Customer customer;
+    private final List<Task> tasks;
+    private final List<Appointment> appointments;
+    private final List<Communication> communications;
+
+    public Customer360(Customer customer, List<Task> tasks, List<Appointment> appointments,
+                       List<Communication> communications) {
+        this.customer = customer;
+        this.tasks = Collections.unmodifiableList(tasks);
+        this.appointments = Collections.unmodifiableList(appointments);
+        this.communications = Collections.unmodifiableList(communications);
+    }
+
+    // Getters
+    public Customer getCustomer() { return customer; }
+    public List<Task> getTasks() { return tasks; }
+    public List<Appointment> getAppointments() { return appointments; }
+    public List<Communication> getCommunications() { return communications; }
+
+    @Override
+    public String toString() {
+        return customer +
+                "\nTasks: " + tasks.size() +
+                "\nAppointments: " + appointments.size() +
+                "\nCommunications: " + communications.size();
+    }
+}
@@ -0,0 +1,138 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Loads a customer and their full history in one round trip.
+// The four SELECTs go to MySQL as a single multi-statement request on a connection from
+// DBHelper.getMultiQueryConnection(), and the result sets are read back in order. Inside a UnitOfWork they
+// run one by one on the unit's connection instead, so they see its uncommitted writes.
+public class Customer360Loader {
+
+    // MySQL has no "no limit" value for LIMIT, so use the largest one it accepts
+    private static final long NO_LIMIT = Long.MAX_VALUE;
+
+    private static final String SQL = CustomerDAO.FIND_BY_ID_SQL + ";" +
+            timelineSql("tasks") + ";" +
+            timelineSql("appointments") + ";" +
+            timelineSql("communications");
+
+    // Newest first; checked by QueryPlanCheck
+    static String timelineSql(String table) {
+        return "SELECT * FROM " + table + " WHERE customer_id=? ORDER BY created_at DESC, id DESC LIMIT ?";
+    }
+
+    private final CustomerDAO customerDAO;
+    private final TaskDAO taskDAO;
+    private final AppointmentDAO appointmentDAO;
+    private final CommunicationDAO communicationDAO;
+
+    public Customer360Loader(CustomerDAO customerDAO, TaskDAO taskDAO, AppointmentDAO appointmentDAO,
+                             CommunicationDAO communicationDAO) {
+        this.customerDAO = customerDAO;
+        this.taskDAO = taskDAO;
+        this.appointmentDAO = appointmentDAO;
+        this.communicationDAO = communicationDAO;
+    }
+
+    public Customer360 load(UUID customerId) throws SQLException {
+        return load(customerId, 0, 0, 0);
+    }
+
+    // A limit of 0 or less loads the whole collection; otherwise only the most recent N items
+    public Customer360 load(UUID customerId, int taskLimit, int appointmentLimit, int communicationLimit)
+            throws SQLException {
+        byte[] id = UuidCodec.toBytes(customerId);
+        long stamp = customerDAO.getCache().stamp();
+
+        Customer customer = null;
+        List<Task> tasks = new ArrayList<>();
+        List<Appointment> appointments = new ArrayList<>();
+        List<Communication> communications = new ArrayList<>();
+
+        if (UnitOfWork.isActive()) {
+            try (Connection conn = DBHelper.getConnection()) {
+                List<Customer> found = query(conn, CustomerDAO.FIND_BY_ID_SQL, customerDAO::mapResultSetToCustomer, id);
+                tasks = query(conn, timelineSql("tasks"), taskDAO::mapResultSetToTask, id, limitOf(taskLimit));
+                appointments = query(conn, timelineSql("appointments"), appointmentDAO::mapResultSetToAppointment,
+                        id, limitOf(appointmentLimit));
+                communications = query(conn, timelineSql("communications"),
+                        communicationDAO::mapResultSetToCommunication, id, limitOf(communicationLimit));
+                return found.isEmpty() ? null : new Customer360(found.get(0), tasks, appointments, communications);
+            }
+        }
+
+        try (Connection conn = DBHelper.getMultiQueryConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+            pstmt.setBytes(1, id);
+            pstmt.setBytes(2, id);
+            pstmt.setLong(3, limitOf(taskLimit));
+            pstmt.setBytes(4, id);
+            pstmt.setLong(5, limitOf(appointmentLimit));
+            pstmt.setBytes(6, id);
+            pstmt.setLong(7, limitOf(communicationLimit));
+
+            pstmt.execute();
+
+            try (ResultSet rs = pstmt.getResultSet()) {
+                if (rs.next()) {
+                    customer = customerDAO.mapResultSetToCustomer(rs);
+                }
+            }
+            nextResult(pstmt);
+            try (ResultSet rs = pstmt.getResultSet()) {
+                while (rs.next()) {
+                    tasks.add(taskDAO.mapResultSetToTask(rs));
+                }
+            }
+            nextResult(pstmt);
+            try (ResultSet rs = pstmt.getResultSet()) {
+                while (rs.next()) {
+                    appointments.add(appointmentDAO.mapResultSetToAppointment(rs));
+                }
+            }
+            nextResult(pstmt);
+            try (ResultSet rs = pstmt.getResultSet()) {
+                while (rs.next()) {
+                    communications.add(communicationDAO.mapResultSetToCommunication(rs));
+                }
+            }
+        }
+
+        if (customer == null) {
+            return null;
+        }
+        customerDAO.getCache().put(customer, stamp);
+        return new Customer360(customer, tasks, appointments, communications);
+    }
+
+    private static long limitOf(int limit) {
+        return limit > 0 ? limit : NO_LIMIT;
+    }
+
+    private static <T> List<T> query(Connection conn, String sql, RowMapper<T> mapper, Object... params)
+            throws SQLException {
+        List<T> rows = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static void nextResult(PreparedStatement pstmt) throws SQLException {
+        if (!pstmt.getMoreResults()) {
+            throw new SQLException("Expected another result set; is allowMultiQueries enabled?");
+        }
+    }
+}
@@ -0,0 +1,168 @@
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded read-through cache for CustomerDAO: LRU by id, entries expire after a TTL,
+// with a secondary index from email to id.
+// Callers always get a copy, so editing a returned Customer never changes what is cached.
+public class CustomerCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final LinkedHashMap<UUID, Entry> byId = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, UUID> byEmail = new HashMap<>();
+    // Bumped on every invalidation; a read that started before it must not repopulate the cache
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CustomerCache(int maxSize, long ttl, TimeUnit unit) {
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    // ----------------------------
+    // LOOKUP
+    // ----------------------------
+    public synchronized Customer get(UUID id) {
+        Entry entry = byId.get(id);
+        if (entry == null || isExpired(entry)) {
+            if (entry != null) {
+                remove(id);
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copyOf(entry.customer);
+    }
+
+    public synchronized Customer getByEmail(String email) {
+        UUID id = email == null ? null : byEmail.get(emailKey(email));
+        if (id == null) {
+            misses.increment();
+            return null;
+        }
+        return get(id);
+    }
+
+    // ----------------------------
+    // POPULATE / INVALIDATE
+    // ----------------------------
+    // Take a stamp before going to the database and pass it to put()
+    public synchronized long stamp() {
+        return generation;
+    }
+
+    // Rows read inside a UnitOfWork are not cached: they may never be committed
+    public synchronized void put(Customer c, long stamp) {
+        if (maxSize <= 0 || stamp != generation || UnitOfWork.isActive()) {
+            return;
+        }
+        remove(c.getCustomerId());
+        byId.put(c.getCustomerId(), new Entry(copyOf(c), System.nanoTime() + ttlNanos));
+        if (c.getEmail() != null) {
+            byEmail.put(emailKey(c.getEmail()), c.getCustomerId());
+        }
+
+        Iterator<Map.Entry<UUID, Entry>> it = byId.entrySet().iterator();
+        while (byId.size() > maxSize && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            removeEmail(eldest.customer);
+            evictions.increment();
+        }
+    }
+
+    // Inside a UnitOfWork another thread may cache the old row again before the commit,
+    // so the entry is dropped once more after it
+    public void invalidate(UUID id) {
+        synchronized (this) {
+            generation++;
+            remove(id);
+        }
+        if (UnitOfWork.isActive()) {
+            UnitOfWork.afterCommit(() -> invalidate(id));
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (this) {
+            generation++;
+            byId.clear();
+            byEmail.clear();
+        }
+        if (UnitOfWork.isActive()) {
+            UnitOfWork.afterCommit(this::invalidateAll);
+        }
+    }
+
+    // ----------------------------
+    // METRICS
+    // ----------------------------
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    public synchronized int size() { return byId.size(); }
+
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : h / (double) total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("\nSize: %d/%d\nHits: %d\nMisses: %d\nHit Ratio: %.2f%%\nEvictions: %d",
+                size(), maxSize, getHits(), getMisses(), getHitRatio() * 100, getEvictions());
+    }
+
+    // ----------------------------
+    // HELPER METHODS
+    // ----------------------------
+    private boolean isExpired(Entry entry) {
+        return System.nanoTime() - entry.expiresAt > 0;
+    }
+
+    private void remove(UUID id) {
+        Entry entry = byId.remove(id);
+        if (entry != null) {
+            removeEmail(entry.customer);
+        }
+    }
+
+    private void removeEmail(Customer c) {
+        if (c.getEmail() != null) {
+            byEmail.remove(emailKey(c.getEmail()), c.getCustomerId());
+        }
+    }
+
+    // customers.email uses a case-insensitive collation, so the index does too
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    private static Customer copyOf(Customer c) {
+        return new Customer(c.getCustomerId(), c.getFullName(), c.getPhone(), c.getEmail(), c.getCategory(),
+                c.getNotes(), c.getCreatedAt());
+    }
+
+    private static class Entry {
+        private final Customer customer;
+        private final long expiresAt;
+
+        Entry(Customer customer, long expiresAt) {
+            this.customer = customer;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -1,61 +1,109 @@
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 public class CustomerDAO {
 
-    private List<Customer> customers;
+    private static final String INSERT_SQL = "INSERT INTO customers(id, full_name, phone, email, category, notes, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE customers SET full_name=?, phone=?, email=?, category=?, notes=? " +
+            "WHERE id=?";
+    private static final String DELETE_SQL = "DELETE FROM customers WHERE id=?";
+    // Read queries, also checked by QueryPlanCheck
+    static final String FIND_BY_ID_SQL = "SELECT * FROM customers WHERE id=?";
+    static final String FIND_BY_EMAIL_SQL = "SELECT * FROM customers WHERE email=?";
+
+    private static final int CACHE_MAX_SIZE = Integer.getInteger("crm.customerCache.maxSize", 10_000);
+    private static final long CACHE_TTL_SECONDS = Long.getLong("crm.customerCache.ttlSeconds", 300);
+
+    private final CustomerCache cache;
+    private final ChangeListeners<Customer> listeners = new ChangeListeners<>();
+    private int batchSize = BatchWriter.DEFAULT_CHUNK_SIZE;
 
     public CustomerDAO() {
-        this.customers = new ArrayList<>();
+        this(new CustomerCache(CACHE_MAX_SIZE, CACHE_TTL_SECONDS, TimeUnit.SECONDS));
+    }
+
+    public CustomerDAO(CustomerCache cache) {
+        this.cache = cache;
     }
 
+    public CustomerCache getCache() { return cache; }
+
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    public void addChangeListener(ChangeListener<Customer> listener) { listeners.add(listener); }
+
     // ----------------------------
     // CREATE
     // ----------------------------
     public void addCustomer(Customer c) throws SQLException {
-        String sql = "INSERT INTO customers(id, full_name, phone, email, category, notes, created_at) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?)";
-
         try (Connection conn = DBHelper.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            String idString = c.getCustomerId().toString().replace("-", "");
-
-            pstmt.setString(1, idString);
-            pstmt.setString(2, c.getFullName());
-            pstmt.setString(3, c.getPhone());
-            pstmt.setString(4, c.getEmail());
-            pstmt.setString(5, c.getCategory().name());
-            pstmt.setString(6, c.getNotes());
-            pstmt.setTimestamp(7, Timestamp.valueOf(c.getCreatedAt()));
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
 
+            bindInsert(pstmt, c);
             pstmt.executeUpdate();
         }
+        listeners.fireInserted(c);
+    }
+
+    public BatchResult addAll(Collection<Customer> list) throws SQLException {
+        BatchResult result = BatchWriter.execute(INSERT_SQL, list, batchSize, this::bindInsert);
+        listeners.fireInserted(list, result);
+        return result;
     }
 
     // ----------------------------
     // READ
     // ----------------------------
     public Customer findById(UUID id) throws SQLException {
-        String sql = "SELECT * FROM customers WHERE id=?";
+        Customer cached = cache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+
+        String sql = FIND_BY_ID_SQL;
+        long stamp = cache.stamp();
         try (Connection conn = DBHelper.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, id.toString().replace("-", ""));
+            pstmt.setBytes(1, UuidCodec.toBytes(id));
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                return mapResultSetToCustomer(rs);
+                Customer c = mapResultSetToCustomer(rs);
+                cache.put(c, stamp);
+                return c;
             }
         }
         return null;
     }
 
+    // Many customers with one IN-list query, in the order of the ids; ids with no row are left out
+    public List<Customer> findByIds(Collection<UUID> ids) throws SQLException {
+        Map<UUID, List<Customer>> rows = InListQuery.findGrouped("customers", "id", ids,
+                this::mapResultSetToCustomer, Customer::getCustomerId);
+        List<Customer> list = new ArrayList<>(rows.size());
+        for (UUID id : ids) {
+            list.addAll(rows.getOrDefault(id, List.of()));
+        }
+        return list;
+    }
+
     public Customer findByEmail(String email) throws SQLException {
-        String sql = "SELECT * FROM customers WHERE email=?";
+        Customer cached = cache.getByEmail(email);
+        if (cached != null) {
+            return cached;
+        }
+
+        String sql = FIND_BY_EMAIL_SQL;
+        long stamp = cache.stamp();
         try (Connection conn = DBHelper.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
@@ -63,7 +111,9 @@ public class CustomerDAO {
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                return mapResultSetToCustomer(rs);
+                Customer c = mapResultSetToCustomer(rs);
+                cache.put(c, stamp);
+                return c;
             }
         }
         return null;
@@ -84,46 +134,148 @@ public class CustomerDAO {
         return list;
     }
 
+    public Stream<Customer> streamAll() throws SQLException {
+        return RowStreams.stream("SELECT * FROM customers", this::mapResultSetToCustomer);
+    }
+
+    public Page<Customer> findPage(int pageSize, String cursor) throws SQLException {
+        return KeysetPager.fetch("customers", pageSize, cursor, this::mapResultSetToCustomer);
+    }
+
+    public long count() throws SQLException {
+        return KeysetPager.count("customers");
+    }
+
+    public String skipCursor(String cursor, long rows) throws SQLException {
+        return KeysetPager.skip("customers", cursor, rows);
+    }
+
     // ----------------------------
     // UPDATE
     // ----------------------------
+    // The previous row is read (and locked) first only when a listener asks for it
     public void updateCustomer(Customer c) throws SQLException {
-        String sql = "UPDATE customers SET full_name=?, phone=?, email=?, category=?, notes=? " +
-                "WHERE id=?";
+        try {
+            if (listeners.needsBefore()) {
+                UnitOfWork.inTransaction(() -> {
+                    update(c, lockRows(List.of(c.getCustomerId())).get(c.getCustomerId()));
+                    return null;
+                });
+            } else {
+                update(c, null);
+            }
+        } finally {
+            cache.invalidate(c.getCustomerId());
+        }
+    }
 
-        try (Connection conn = DBHelper.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    public BatchResult updateAll(Collection<Customer> list) throws SQLException {
+        try {
+            if (listeners.needsBefore()) {
+                return UnitOfWork.inTransaction(() ->
+                        updateAll(list, lockRows(list.stream().map(Customer::getCustomerId).toList())));
+            }
+            return updateAll(list, Map.of());
+        } finally {
+            list.forEach(c -> cache.invalidate(c.getCustomerId()));
+        }
+    }
 
-            pstmt.setString(1, c.getFullName());
-            pstmt.setString(2, c.getPhone());
-            pstmt.setString(3, c.getEmail());
-            pstmt.setString(4, c.getCategory().name());
-            pstmt.setString(5, c.getNotes());
-            pstmt.setString(6, c.getCustomerId().toString().replace("-", ""));
+    private void update(Customer c, Customer before) throws SQLException {
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(UPDATE_SQL)) {
 
-            pstmt.executeUpdate();
+            bindUpdate(pstmt, c);
+            if (pstmt.executeUpdate() > 0) {
+                listeners.fireUpdated(before, c);
+            }
         }
     }
 
+    private BatchResult updateAll(Collection<Customer> list, Map<UUID, Customer> before) throws SQLException {
+        BatchResult result = BatchWriter.execute(UPDATE_SQL, list, batchSize, this::bindUpdate);
+        listeners.fireUpdated(before, list, Customer::getCustomerId, result);
+        return result;
+    }
+
     // ----------------------------
     // DELETE
     // ----------------------------
     public void deleteCustomer(UUID id) throws SQLException {
-        String sql = "DELETE FROM customers WHERE id=?";
+        try {
+            if (listeners.needsBefore()) {
+                UnitOfWork.inTransaction(() -> {
+                    delete(id, lockRows(List.of(id)).get(id));
+                    return null;
+                });
+            } else {
+                delete(id, null);
+            }
+        } finally {
+            cache.invalidate(id);
+        }
+    }
 
+    public BatchResult deleteAll(Collection<UUID> ids) throws SQLException {
+        try {
+            if (listeners.needsBefore()) {
+                return UnitOfWork.inTransaction(() -> deleteAll(ids, lockRows(ids)));
+            }
+            return deleteAll(ids, Map.of());
+        } finally {
+            ids.forEach(cache::invalidate);
+        }
+    }
+
+    private void delete(UUID id, Customer before) throws SQLException {
         try (Connection conn = DBHelper.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(DELETE_SQL)) {
 
-            pstmt.setString(1, id.toString().replace("-", ""));
-            pstmt.executeUpdate();
+            bindDelete(pstmt, id);
+            if (pstmt.executeUpdate() > 0) {
+                listeners.fireDeleted(id, before);
+            }
         }
     }
 
+    private BatchResult deleteAll(Collection<UUID> ids, Map<UUID, Customer> before) throws SQLException {
+        BatchResult result = BatchWriter.execute(DELETE_SQL, ids, batchSize, this::bindDelete);
+        listeners.fireDeleted(before, ids, result);
+        return result;
+    }
+
     // ----------------------------
-    // HELPER METHOD
+    // HELPER METHODS
     // ----------------------------
-    private Customer mapResultSetToCustomer(ResultSet rs) throws SQLException {
-        UUID id = UUID.fromString(rs.getString("id"));
+    private Map<UUID, Customer> lockRows(Collection<UUID> ids) throws SQLException {
+        return InListQuery.lock("customers", ids, this::mapResultSetToCustomer, Customer::getCustomerId);
+    }
+
+    private void bindInsert(PreparedStatement pstmt, Customer c) throws SQLException {
+        pstmt.setBytes(1, UuidCodec.toBytes(c.getCustomerId()));
+        pstmt.setString(2, c.getFullName());
+        pstmt.setString(3, c.getPhone());
+        pstmt.setString(4, c.getEmail());
+        pstmt.setString(5, c.getCategory().name());
+        pstmt.setString(6, c.getNotes());
+        pstmt.setTimestamp(7, Timestamp.valueOf(c.getCreatedAt()));
+    }
+
+    private void bindUpdate(PreparedStatement pstmt, Customer c) throws SQLException {
+        pstmt.setString(1, c.getFullName());
+        pstmt.setString(2, c.getPhone());
+        pstmt.setString(3, c.getEmail());
+        pstmt.setString(4, c.getCategory().name());
+        pstmt.setString(5, c.getNotes());
+        pstmt.setBytes(6, UuidCodec.toBytes(c.getCustomerId()));
+    }
+
+    private void bindDelete(PreparedStatement pstmt, UUID id) throws SQLException {
+        pstmt.setBytes(1, UuidCodec.toBytes(id));
+    }
+
+    public Customer mapResultSetToCustomer(ResultSet rs) throws SQLException {
+        UUID id = UuidCodec.read(rs, "id");
         String fullName = rs.getString("full_name");
         String phone = rs.getString("phone");
         String email = rs.getString("email");
@@ -132,10 +284,6 @@ public class CustomerDAO {
         Timestamp createdTs = rs.getTimestamp("created_at");
         LocalDateTime createdAt = createdTs.toLocalDateTime();
 
-        Customer customer = new Customer(fullName, phone, email, category, notes);
-        customer.setCustomerId(id);
-        customer.setCreatedAt(createdAt);
-
-        return customer;
+        return new Customer(id, fullName, phone, email, category, notes, createdAt);
     }
 }
@@ -0,0 +1,470 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Finds customers entered more than once under a different email or a differently written phone.
+//
+// Comparing every pair is quadratic, so customers are first grouped into blocks that share a key:
+//   p:<phone>        phone digits without formatting or the 00 prefix, last 10 digits
+//   l:<local part>   email local part, lowercased, without +tags (and without dots for Gmail)
+//   n:<name code>    Soundex of each name word, Greek transliterated first, in sorted order
+// and only pairs inside a block are scored. A pair that shares several keys is scored once, in the
+// block of the first key they share. Blocks larger than maxBlockSize (a very common name, a shared
+// switchboard number) are skipped and reported, which keeps the work close to linear.
+// Normalising, blocking and scoring run on parallel streams, so every core is used.
+//
+// Usage: java CustomerDeduplicator [proposals.csv]
+public class CustomerDeduplicator {
+
+    // -Dcrm.dedup.minScore, -Dcrm.dedup.maxBlockSize
+    private static final double DEFAULT_MIN_SCORE = Double.parseDouble(System.getProperty("crm.dedup.minScore", "0.75"));
+    private static final int DEFAULT_MAX_BLOCK_SIZE = Integer.getInteger("crm.dedup.maxBlockSize", 500);
+
+    // Mailbox names too common to say anything about who is behind them
+    private static final Set<String> GENERIC_LOCAL_PARTS = Set.of("info", "contact", "admin", "office", "sales",
+            "support", "mail", "email", "hello", "test", "noreply", "no-reply");
+
+    private final CustomerDAO customerDAO;
+    private final double minScore;
+    private final int maxBlockSize;
+
+    public CustomerDeduplicator(CustomerDAO customerDAO) {
+        this(customerDAO, DEFAULT_MIN_SCORE, DEFAULT_MAX_BLOCK_SIZE);
+    }
+
+    public CustomerDeduplicator(CustomerDAO customerDAO, double minScore, int maxBlockSize) {
+        this.customerDAO = customerDAO;
+        this.minScore = minScore;
+        this.maxBlockSize = maxBlockSize;
+    }
+
+    public static void main(String[] args) throws Exception {
+        try {
+            long start = System.nanoTime();
+            List<MergeProposal> proposals = new CustomerDeduplicator(new CustomerDAO()).findDuplicates();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Writer out = args.length > 0
+                    ? Files.newBufferedWriter(Path.of(args[0]), StandardCharsets.UTF_8)
+                    : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            CsvWriter csv = new CsvWriter(out);
+            csv.writeRow("keep_id", "duplicate_id", "score", "reasons");
+            for (MergeProposal p : proposals) {
+                csv.writeRow(p.getKeepId(), p.getDuplicateId(), String.format(Locale.ROOT, "%.3f", p.getScore()),
+                        String.join("; ", p.getReasons()));
+            }
+            if (args.length > 0) {
+                csv.close();
+            } else {
+                csv.flush();
+            }
+            System.err.printf("%d merge proposals in %.1f s%n", proposals.size(), seconds);
+        } finally {
+            DBHelper.shutdown();
+        }
+    }
+
+    // Streams the customer table; proposals come back best first
+    public List<MergeProposal> findDuplicates() throws SQLException {
+        try (Stream<Customer> customers = customerDAO.streamAll()) {
+            return findDuplicates(customers);
+        } catch (UncheckedSQLException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    public List<MergeProposal> findDuplicates(Stream<Customer> customers) {
+        // Only the fields that matter are kept, not the Customer objects
+        List<Entry> entries = customers
+                .map(c -> new Entry(c.getCustomerId(), c.getCreatedAt(), c.getFullName(), c.getPhone(), c.getEmail()))
+                .collect(Collectors.toList());
+        entries.parallelStream().forEach(Entry::normalize);
+
+        // One (key hash, entry) pair per key, sorted: every run of equal hashes is a block. Sorting
+        // primitives keeps millions of keys off the heap; a hash collision only merges two blocks,
+        // and the shared-key check below keeps such blocks from pairing unrelated customers.
+        int total = 0;
+        for (Entry entry : entries) {
+            total += entry.keys.length;
+        }
+        long[] refs = new long[total];
+        int k = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            for (String key : entries.get(i).keys) {
+                refs[k++] = ((long) key.hashCode() << 32) | i;
+            }
+        }
+        Arrays.parallelSort(refs);
+
+        List<int[]> blocks = new ArrayList<>();
+        // Hashes of the blocks too large to score; pairs in them are scored in another block they share
+        Set<Integer> skipped = new HashSet<>();
+        for (int from = 0, to; from < refs.length; from = to) {
+            to = from + 1;
+            while (to < refs.length && hashOf(refs[to]) == hashOf(refs[from])) {
+                to++;
+            }
+            if (to - from > maxBlockSize) {
+                skipped.add(hashOf(refs[from]));
+            } else if (to - from > 1) {
+                blocks.add(new int[]{from, to});
+            }
+        }
+
+        List<MergeProposal> proposals = blocks.parallelStream()
+                .flatMap(block -> scoreBlock(refs, block[0], block[1], entries, skipped).stream())
+                .sorted(Comparator.comparingDouble(MergeProposal::getScore).reversed()
+                        .thenComparing(MergeProposal::getKeepId)
+                        .thenComparing(MergeProposal::getDuplicateId))
+                .collect(Collectors.toList());
+
+        if (!skipped.isEmpty()) {
+            System.err.println("Deduplication skipped " + skipped.size() + " blocks larger than " + maxBlockSize +
+                    " customers; raise -Dcrm.dedup.maxBlockSize to score them too");
+        }
+        return proposals;
+    }
+
+    // ----------------------------
+    // SCORING
+    // ----------------------------
+    private List<MergeProposal> scoreBlock(long[] refs, int from, int to, List<Entry> entries, Set<Integer> skipped) {
+        List<MergeProposal> proposals = new ArrayList<>();
+        int hash = hashOf(refs[from]);
+        for (int i = from; i < to; i++) {
+            Entry a = entries.get(entryOf(refs[i]));
+            for (int j = i + 1; j < to; j++) {
+                if (entryOf(refs[j]) == entryOf(refs[i])) {
+                    // Two keys of the same customer with the same hash
+                    continue;
+                }
+                Entry b = entries.get(entryOf(refs[j]));
+                String shared = firstSharedKey(a, b, skipped);
+                if (shared == null || shared.hashCode() != hash) {
+                    continue;
+                }
+                MergeProposal proposal = score(a, b);
+                if (proposal != null) {
+                    proposals.add(proposal);
+                }
+            }
+        }
+        return proposals;
+    }
+
+    private static int hashOf(long ref) { return (int) (ref >> 32); }
+
+    private static int entryOf(long ref) { return (int) ref; }
+
+    // Each piece of evidence removes part of the remaining doubt (a noisy-or); a shared phone or mailbox
+    // with clearly different names is more likely a household or a company than one person.
+    private MergeProposal score(Entry a, Entry b) {
+        List<String> reasons = new ArrayList<>();
+        double doubt = 1;
+        if (a.phone != null && a.phone.equals(b.phone)) {
+            doubt *= 0.3;
+            reasons.add("same phone");
+        }
+        if (a.email != null && a.email.equals(b.email)) {
+            doubt *= 0.1;
+            reasons.add("same email");
+        } else if (a.localPart != null && a.localPart.equals(b.localPart)) {
+            doubt *= 0.5;
+            reasons.add("same email name");
+        }
+        double nameSimilarity = jaroWinkler(a.name, b.name);
+        if (nameSimilarity >= 0.85) {
+            doubt *= 1 - 0.6 * nameSimilarity;
+            reasons.add(nameSimilarity == 1 ? "same name" : String.format(Locale.ROOT, "similar name (%.2f)", nameSimilarity));
+        }
+        double score = 1 - doubt;
+        if (nameSimilarity < 0.7) {
+            score *= 0.6;
+        }
+        if (score < minScore) {
+            return null;
+        }
+
+        Entry keep = a;
+        Entry duplicate = b;
+        if (isNewer(a, b)) {
+            keep = b;
+            duplicate = a;
+        }
+        return new MergeProposal(keep.id, duplicate.id, score, reasons);
+    }
+
+    private static boolean isNewer(Entry a, Entry b) {
+        int c = a.createdAt.compareTo(b.createdAt);
+        return c != 0 ? c > 0 : a.id.compareTo(b.id) > 0;
+    }
+
+    // Keys are sorted by hash, so this is the shared key whose block scores the pair;
+    // keys whose block was skipped cannot score it
+    private static String firstSharedKey(Entry a, Entry b, Set<Integer> skipped) {
+        for (String key : a.keys) {
+            if (skipped.contains(key.hashCode())) {
+                continue;
+            }
+            for (String other : b.keys) {
+                if (key.equals(other)) {
+                    return key;
+                }
+            }
+        }
+        return null;
+    }
+
+    static double jaroWinkler(String s, String t) {
+        if (s.isEmpty() || t.isEmpty()) {
+            return s.equals(t) ? 1 : 0;
+        }
+        if (s.equals(t)) {
+            return 1;
+        }
+        int window = Math.max(0, Math.max(s.length(), t.length()) / 2 - 1);
+        boolean[] sMatched = new boolean[s.length()];
+        boolean[] tMatched = new boolean[t.length()];
+        int matches = 0;
+        for (int i = 0; i < s.length(); i++) {
+            int from = Math.max(0, i - window);
+            int to = Math.min(t.length() - 1, i + window);
+            for (int j = from; j <= to; j++) {
+                if (!tMatched[j] && s.charAt(i) == t.charAt(j)) {
+                    sMatched[i] = true;
+                    tMatched[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0;
+        }
+        int transpositions = 0;
+        for (int i = 0, j = 0; i < s.length(); i++) {
+            if (!sMatched[i]) {
+                continue;
+            }
+            while (!tMatched[j]) {
+                j++;
+            }
+            if (s.charAt(i) != t.charAt(j)) {
+                transpositions++;
+            }
+            j++;
+        }
+        double m = matches;
+        double jaro = (m / s.length() + m / t.length() + (m - transpositions / 2.0) / m) / 3;
+        int prefix = 0;
+        while (prefix < Math.min(4, Math.min(s.length(), t.length())) && s.charAt(prefix) == t.charAt(prefix)) {
+            prefix++;
+        }
+        return jaro + prefix * 0.1 * (1 - jaro);
+    }
+
+    // ----------------------------
+    // NORMALISATION
+    // ----------------------------
+    private static class Entry {
+        private final UUID id;
+        private final LocalDateTime createdAt;
+        private String name;
+        private String phone;
+        private String email;
+        private String localPart;
+        private String[] keys;
+
+        Entry(UUID id, LocalDateTime createdAt, String fullName, String phone, String email) {
+            this.id = id;
+            this.createdAt = createdAt;
+            this.name = fullName;
+            this.phone = phone;
+            this.email = email;
+        }
+
+        void normalize() {
+            List<String> words = nameWords(name);
+            words.sort(null);
+            name = String.join(" ", words);
+            phone = normalizePhone(phone);
+            email = normalizeEmail(email);
+            localPart = email == null ? null : email.substring(0, email.indexOf('@'));
+            if (localPart != null && (localPart.length() < 3 || GENERIC_LOCAL_PARTS.contains(localPart))) {
+                localPart = null;
+            }
+
+            List<String> keyList = new ArrayList<>(3);
+            if (phone != null) {
+                keyList.add("p:" + phone);
+            }
+            if (localPart != null) {
+                keyList.add("l:" + localPart);
+            }
+            if (!words.isEmpty()) {
+                List<String> codes = new ArrayList<>(words.size());
+                for (String word : words) {
+                    codes.add(soundex(word));
+                }
+                codes.sort(null);
+                keyList.add("n:" + String.join(".", codes));
+            }
+            keyList.sort(Comparator.comparingInt(String::hashCode).thenComparing(Comparator.naturalOrder()));
+            keys = keyList.toArray(new String[0]);
+        }
+    }
+
+    // "+30 210-555 1234" and "0030 2105551234" are the same number
+    static String normalizePhone(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        String value = digits.toString();
+        if (value.startsWith("00")) {
+            value = value.substring(2);
+        }
+        if (value.length() > 10) {
+            value = value.substring(value.length() - 10);
+        }
+        return value.length() < 7 ? null : value;
+    }
+
+    static String normalizeEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        String value = email.trim().toLowerCase(Locale.ROOT);
+        int at = value.lastIndexOf('@');
+        if (at <= 0 || at == value.length() - 1) {
+            return null;
+        }
+        String local = value.substring(0, at);
+        String domain = value.substring(at + 1);
+        int plus = local.indexOf('+');
+        if (plus > 0) {
+            local = local.substring(0, plus);
+        }
+        if (domain.equals("gmail.com") || domain.equals("googlemail.com")) {
+            local = local.replace(".", "");
+            domain = "gmail.com";
+        }
+        return local + "@" + domain;
+    }
+
+    // Lowercase words of the name, accents removed and Greek letters transliterated
+    static List<String> nameWords(String fullName) {
+        List<String> words = new ArrayList<>();
+        if (fullName == null) {
+            return words;
+        }
+        String folded = Normalizer.normalize(fullName, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= folded.length(); i++) {
+            char c = i < folded.length() ? folded.charAt(i) : ' ';
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            String latin = transliterate(c);
+            if (latin != null) {
+                word.append(latin);
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return words;
+    }
+
+    private static String transliterate(char c) {
+        if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+            return String.valueOf(c);
+        }
+        switch (c) {
+            case 'α': return "a";
+            case 'β': return "v";
+            case 'γ': return "g";
+            case 'δ': return "d";
+            case 'ε': return "e";
+            case 'ζ': return "z";
+            case 'η': return "i";
+            case 'θ': return "th";
+            case 'ι': return "i";
+            case 'κ': return "k";
+            case 'λ': return "l";
+            case 'μ': return "m";
+            case 'ν': return "n";
+            case 'ξ': return "x";
+            case 'ο': return "o";
+            case 'π': return "p";
+            case 'ρ': return "r";
+            case 'σ':
+            case 'ς': return "s";
+            case 'τ': return "t";
+            case 'υ': return "y";
+            case 'φ': return "f";
+            case 'χ': return "ch";
+            case 'ψ': return "ps";
+            case 'ω': return "o";
+            default: return null;
+        }
+    }
+
+    // American Soundex: first letter plus three consonant-group digits
+    static String soundex(String word) {
+        StringBuilder code = new StringBuilder(4);
+        char last = 0;
+        for (int i = 0; i < word.length() && code.length() < 4; i++) {
+            char c = word.charAt(i);
+            char digit = soundexDigit(c);
+            if (code.length() == 0) {
+                code.append(c);
+            } else if (digit != '0' && digit != last) {
+                code.append(digit);
+            }
+            // h and w do not separate letters with the same code; vowels do
+            if (c != 'h' && c != 'w') {
+                last = digit;
+            }
+        }
+        while (code.length() < 4) {
+            code.append('0');
+        }
+        return code.toString();
+    }
+
+    private static char soundexDigit(char c) {
+        switch (c) {
+            case 'b': case 'f': case 'p': case 'v': return '1';
+            case 'c': case 'g': case 'j': case 'k': case 'q': case 's': case 'x': case 'z': return '2';
+            case 'd': case 't': return '3';
+            case 'l': return '4';
+            case 'm': case 'n': return '5';
+            case 'r': return '6';
+            default: return '0';
+        }
+    }
+}
@@ -0,0 +1,30 @@
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+// Two customer rows that look like the same person. The older row is proposed as the one to keep.
+public class MergeProposal {
+
+    private final UUID keepId;
+    private final UUID duplicateId;
+    private final double score;
+    private final List<String> reasons;
+
+    public MergeProposal(UUID keepId, UUID duplicateId, double score, List<String> reasons) {
+        this.keepId = keepId;
+        this.duplicateId = duplicateId;
+        this.score = score;
+        this.reasons = Collections.unmodifiableList(reasons);
+    }
+
+    // Getters
+    public UUID getKeepId() { return keepId; }
+    public UUID getDuplicateId() { return duplicateId; }
+    public double getScore() { return score; }
+    public List<String> getReasons() { return reasons; }
+
+    @Override
+    public String toString() {
+        return String.format("%s <- %s (%.2f: %s)", keepId, duplicateId, score, String.join(", ", reasons));
+    }
+}
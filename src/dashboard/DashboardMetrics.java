@@ -0,0 +1,219 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Live counts for the dashboard: customers per Category, tasks per TaskStatus, appointments per
+// AppointmentStatus, communications per CommunicationType and calls per CallOutcome.
+// Reads only sum LongAdders and never touch the database.
+//
+// Inserts are counted exactly by the DAO change listeners. Updates and deletes do not say what the row
+// was before, so they mark the table dirty instead and its GROUP BY is re-run shortly after
+// (DIRTY_DELAY_MILLIS, so a burst of edits costs one query). A full reconciliation every
+// RECONCILE_SECONDS also picks up writes made outside this application.
+public class DashboardMetrics implements AutoCloseable {
+
+    // -Dcrm.metrics.reconcileSeconds, -Dcrm.metrics.dirtyDelayMillis
+    private static final long RECONCILE_SECONDS = Long.getLong("crm.metrics.reconcileSeconds", 300);
+    private static final long DIRTY_DELAY_MILLIS = Long.getLong("crm.metrics.dirtyDelayMillis", 500);
+
+    private final Counters<Category> customers =
+            new Counters<>(Category.class, "SELECT category, COUNT(*) FROM customers GROUP BY category");
+    private final Counters<TaskStatus> tasks =
+            new Counters<>(TaskStatus.class, "SELECT status, COUNT(*) FROM tasks GROUP BY status");
+    private final Counters<AppointmentStatus> appointments =
+            new Counters<>(AppointmentStatus.class, "SELECT status, COUNT(*) FROM appointments GROUP BY status");
+    private final Counters<CommunicationType> communications =
+            new Counters<>(CommunicationType.class, "SELECT status, COUNT(*) FROM communications GROUP BY status");
+    private final Counters<CallOutcome> callOutcomes = new Counters<>(CallOutcome.class,
+            "SELECT call_outcome, COUNT(*) FROM communications WHERE status='CALL' GROUP BY call_outcome");
+
+    private final ScheduledExecutorService reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "crm-metrics");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public DashboardMetrics(CustomerDAO customerDAO, TaskDAO taskDAO, AppointmentDAO appointmentDAO,
+                            CommunicationDAO communicationDAO) {
+        customerDAO.addChangeListener(new ChangeListener<>() {
+            @Override
+            public void inserted(Customer c) { customers.increment(c.getCategory()); }
+
+            @Override
+            public void updated(Customer c) { markDirty(customers); }
+
+            @Override
+            public void deleted(UUID id) { markDirty(customers); }
+        });
+        taskDAO.addChangeListener(new ChangeListener<>() {
+            @Override
+            public void inserted(Task task) { tasks.increment(task.getStatus()); }
+
+            @Override
+            public void updated(Task task) { markDirty(tasks); }
+
+            @Override
+            public void deleted(UUID id) { markDirty(tasks); }
+        });
+        appointmentDAO.addChangeListener(new ChangeListener<>() {
+            @Override
+            public void inserted(Appointment a) { appointments.increment(a.getStatus()); }
+
+            @Override
+            public void updated(Appointment a) { markDirty(appointments); }
+
+            @Override
+            public void deleted(UUID id) { markDirty(appointments); }
+        });
+        communicationDAO.addChangeListener(new ChangeListener<>() {
+            @Override
+            public void inserted(Communication c) {
+                communications.increment(c.getType());
+                if (c instanceof CallCommunication) {
+                    callOutcomes.increment(((CallCommunication) c).getOutcome());
+                }
+            }
+
+            @Override
+            public void updated(Communication c) {
+                markDirty(communications);
+                markDirty(callOutcomes);
+            }
+
+            @Override
+            public void deleted(UUID id) {
+                markDirty(communications);
+                markDirty(callOutcomes);
+            }
+        });
+    }
+
+    // ----------------------------
+    // LIFECYCLE
+    // ----------------------------
+    // Loads the counts and schedules the periodic reconciliation
+    public void start() throws SQLException {
+        reconcile();
+        reconciler.scheduleWithFixedDelay(this::reconcileQuietly, RECONCILE_SECONDS, RECONCILE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void close() {
+        reconciler.shutdownNow();
+    }
+
+    // Resets every counter to what the database says, keeping increments made while the queries ran
+    public void reconcile() throws SQLException {
+        try (Connection conn = DBHelper.getConnection()) {
+            for (Counters<?> counters : all()) {
+                counters.dirty.set(false);
+                counters.reconcile(conn);
+            }
+        }
+    }
+
+    // ----------------------------
+    // READS
+    // ----------------------------
+    public long getCustomers(Category category) { return customers.get(category); }
+    public long getTasks(TaskStatus status) { return tasks.get(status); }
+    public long getAppointments(AppointmentStatus status) { return appointments.get(status); }
+    public long getCommunications(CommunicationType type) { return communications.get(type); }
+    public long getCalls(CallOutcome outcome) { return callOutcomes.get(outcome); }
+
+    public Map<Category, Long> getCustomersByCategory() { return customers.snapshot(); }
+    public Map<TaskStatus, Long> getTasksByStatus() { return tasks.snapshot(); }
+    public Map<AppointmentStatus, Long> getAppointmentsByStatus() { return appointments.snapshot(); }
+    public Map<CommunicationType, Long> getCommunicationsByType() { return communications.snapshot(); }
+    public Map<CallOutcome, Long> getCallsByOutcome() { return callOutcomes.snapshot(); }
+
+    // ----------------------------
+    // HELPER METHODS
+    // ----------------------------
+    private Counters<?>[] all() {
+        return new Counters<?>[]{customers, tasks, appointments, communications, callOutcomes};
+    }
+
+    private void markDirty(Counters<?> counters) {
+        if (counters.dirty.compareAndSet(false, true)) {
+            reconciler.schedule(() -> {
+                counters.dirty.set(false);
+                try (Connection conn = DBHelper.getConnection()) {
+                    counters.reconcile(conn);
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }, DIRTY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    // One LongAdder per enum constant; each adder stripes its cells across contending threads
+    private static class Counters<E extends Enum<E>> {
+        private final Class<E> type;
+        private final String sql;
+        private final EnumMap<E, LongAdder> adders;
+        private final AtomicBoolean dirty = new AtomicBoolean();
+
+        Counters(Class<E> type, String sql) {
+            this.type = type;
+            this.sql = sql;
+            this.adders = new EnumMap<>(type);
+            for (E value : type.getEnumConstants()) {
+                adders.put(value, new LongAdder());
+            }
+        }
+
+        // Rows without a value (a call with no outcome) are not counted
+        void increment(E value) {
+            if (value != null) {
+                adders.get(value).increment();
+            }
+        }
+
+        long get(E value) { return adders.get(value).sum(); }
+
+        Map<E, Long> snapshot() {
+            EnumMap<E, Long> counts = new EnumMap<>(type);
+            adders.forEach((value, adder) -> counts.put(value, adder.sum()));
+            return Collections.unmodifiableMap(counts);
+        }
+
+        // Adds (database count - count before the query) rather than overwriting, so an insert counted
+        // while the query ran is kept. One committed just before the query may be counted twice until
+        // the next reconciliation.
+        synchronized void reconcile(Connection conn) throws SQLException {
+            Map<E, Long> before = snapshot();
+            EnumMap<E, Long> actual = new EnumMap<>(type);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql);
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String value = rs.getString(1);
+                    if (value != null) {
+                        actual.put(Enum.valueOf(type, value), rs.getLong(2));
+                    }
+                }
+            }
+            for (E value : type.getEnumConstants()) {
+                adders.get(value).add(actual.getOrDefault(value, 0L) - before.get(value));
+            }
+        }
+    }
+}
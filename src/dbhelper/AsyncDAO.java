@@ -0,0 +1,46 @@
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Non-blocking facade over any of the DAOs:
+//   AsyncDAO<CustomerDAO> customers = new AsyncDAO<>(customerDAO, executor);
+//   customers.call(dao -> dao.findById(id)).thenAccept(...);
+// All facades sharing one AsyncExecutor share its concurrency limit.
+public class AsyncDAO<D> {
+
+    @FunctionalInterface
+    public interface DaoCall<D, T> {
+        T call(D dao) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface DaoAction<D> {
+        void run(D dao) throws SQLException;
+    }
+
+    private final D dao;
+    private final AsyncExecutor executor;
+
+    public AsyncDAO(D dao, AsyncExecutor executor) {
+        this.dao = dao;
+        this.executor = executor;
+    }
+
+    public D getDao() { return dao; }
+
+    public <T> CompletableFuture<T> call(DaoCall<D, T> call) {
+        return executor.submit(() -> call.call(dao));
+    }
+
+    public <T> CompletableFuture<T> call(DaoCall<D, T> call, long timeout, TimeUnit unit) {
+        return executor.submit(() -> call.call(dao), timeout, unit);
+    }
+
+    // For void DAO methods such as addCustomer or deleteTask
+    public CompletableFuture<Void> run(DaoAction<D> action) {
+        return executor.submit(() -> {
+            action.run(dao);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Runs blocking DAO calls on virtual threads and hands back CompletableFutures.
+// A semaphore sized to the connection pool caps how many calls touch the database at once;
+// the rest park cheaply on their virtual thread instead of piling up inside the pool.
+// Cancelling a future, or letting it time out, interrupts the call that is still running or waiting.
+public class AsyncExecutor implements AutoCloseable {
+
+    private static final long DEFAULT_TIMEOUT_MS = Long.getLong("crm.async.timeoutMs", 30_000);
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final long defaultTimeoutMillis;
+
+    public AsyncExecutor() {
+        this(DBHelper.getPoolMaxSize(), DEFAULT_TIMEOUT_MS);
+    }
+
+    public AsyncExecutor(int maxConcurrency, long defaultTimeoutMillis) {
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+    }
+
+    public <T> CompletableFuture<T> submit(SqlCall<T> call) {
+        return submit(call, defaultTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // A timeout of 0 or less means wait forever
+    public <T> CompletableFuture<T> submit(SqlCall<T> call, long timeout, TimeUnit unit) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException ex) {
+                result.completeExceptionally(new CancellationException("Cancelled while waiting for a connection slot"));
+                return;
+            }
+            try {
+                result.complete(call.call());
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            } finally {
+                permits.release();
+            }
+        });
+
+        if (timeout > 0) {
+            result.orTimeout(timeout, unit);
+        }
+        // Propagate cancel() and timeouts to the worker so it stops holding a permit and a connection
+        result.whenComplete((value, error) -> {
+            if (error != null && !task.isDone()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    public int getAvailablePermits() { return permits.availablePermits(); }
+    public int getQueueLength() { return permits.getQueueLength(); }
+
+    // Unwraps CompletionException so callers see the original SQLException
+    public static Throwable rootCause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
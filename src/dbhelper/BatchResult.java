@@ -0,0 +1,45 @@
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Outcome of a batch write: how many rows went through and why the others did not
+public class BatchResult {
+
+    private final int total;
+    private int succeeded;
+    // Index in the submitted collection -> reason
+    private final Map<Integer, String> failures = new LinkedHashMap<>();
+    // Index -> SQLState, for rows the database refused
+    private final Map<Integer, String> sqlStates = new HashMap<>();
+
+    public BatchResult(int total) {
+        this.total = total;
+    }
+
+    void recordSuccess() { succeeded++; }
+    void recordFailure(int index, String reason, String sqlState) {
+        failures.put(index, reason);
+        if (sqlState != null) {
+            sqlStates.put(index, sqlState);
+        }
+    }
+
+    public int getTotal() { return total; }
+    public int getSucceeded() { return succeeded; }
+    public int getFailed() { return failures.size(); }
+    public boolean hasFailures() { return !failures.isEmpty(); }
+    public Map<Integer, String> getFailures() { return Collections.unmodifiableMap(failures); }
+
+    // Null when the row never reached the database (it could not be bound) or matched no row
+    public String getSqlState(int index) { return sqlStates.get(index); }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("\nTotal: " + total +
+                "\nSucceeded: " + succeeded +
+                "\nFailed: " + failures.size());
+        failures.forEach((index, reason) -> sb.append("\n  #").append(index).append(": ").append(reason));
+        return sb.toString();
+    }
+}
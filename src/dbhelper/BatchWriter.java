@@ -0,0 +1,118 @@
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Runs one statement for many items with addBatch/executeBatch, in chunks, inside a single transaction.
+// A bad row is recorded in the BatchResult and skipped; the rest of the batch still commits.
+// Any other error rolls the whole batch back and is thrown.
+public class BatchWriter {
+
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    public static <T> BatchResult execute(String sql, Collection<T> items, int chunkSize,
+                                          StatementBinder<T> binder) throws SQLException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        List<T> list = new ArrayList<>(items);
+        BatchResult result = new BatchResult(list.size());
+        if (list.isEmpty()) {
+            return result;
+        }
+
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            conn.setAutoCommit(false);
+            try {
+                for (int from = 0; from < list.size(); from += chunkSize) {
+                    int to = Math.min(from + chunkSize, list.size());
+                    executeChunk(pstmt, list, from, to, binder, result);
+                }
+                conn.commit();
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return result;
+    }
+
+    private static <T> void executeChunk(PreparedStatement pstmt, List<T> list, int from, int to,
+                                         StatementBinder<T> binder, BatchResult result) throws SQLException {
+        // Indexes of the rows that actually made it into the batch
+        List<Integer> queued = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            try {
+                binder.bind(pstmt, list.get(i));
+                pstmt.addBatch();
+                queued.add(i);
+            } catch (SQLException | RuntimeException ex) {
+                pstmt.clearParameters();
+                result.recordFailure(i, "Invalid row: " + ex.getMessage(), null);
+            }
+        }
+        if (queued.isEmpty()) {
+            return;
+        }
+
+        int[] counts;
+        try {
+            counts = pstmt.executeBatch();
+        } catch (BatchUpdateException ex) {
+            if (!isRowError(ex)) {
+                // Deadlock, lock wait timeout, lost connection...: the server may already have rolled back
+                // the whole transaction, earlier chunks included, so nothing here can be reported as done
+                throw ex;
+            }
+            counts = ex.getUpdateCounts();
+            if (counts == null) {
+                counts = new int[0];
+            }
+            pstmt.clearBatch();
+        }
+
+        // Rows the driver could not confirm (it stopped early, or a rewritten multi-row
+        // statement failed as a whole) are retried one by one to find the actual culprit.
+        // After an integrity error InnoDB rolls back only that statement, so the transaction stays usable.
+        for (int k = 0; k < queued.size(); k++) {
+            int index = queued.get(k);
+            if (k < counts.length && counts[k] != Statement.EXECUTE_FAILED) {
+                record(result, index, counts[k]);
+                continue;
+            }
+            try {
+                binder.bind(pstmt, list.get(index));
+                record(result, index, pstmt.executeUpdate());
+            } catch (SQLException ex) {
+                if (!isRowError(ex)) {
+                    throw ex;
+                }
+                result.recordFailure(index, ex.getMessage(), ex.getSQLState());
+            }
+        }
+    }
+
+    // A count of 0 means the statement matched nothing (an update or delete of an id that does not exist);
+    // SUCCESS_NO_INFO is what rewritten multi-row inserts report
+    private static void record(BatchResult result, int index, int count) {
+        if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+            result.recordSuccess();
+        } else {
+            result.recordFailure(index, "No row", null);
+        }
+    }
+
+    // Integrity constraint violations (duplicate key, missing parent row) concern one row only
+    private static boolean isRowError(SQLException ex) {
+        String state = ex.getSQLState();
+        return state != null && state.startsWith("23");
+    }
+}
@@ -0,0 +1,185 @@
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+// Week and month buckets of a date-ordered table, for calendar views.
+// A bucket is loaded once with a range query and kept (LRU) until a write touches it: registered as a
+// ChangeListener, the cache drops the buckets covering an item's new date and every cached bucket the
+// item was in before, so a moved appointment disappears from its old week as well.
+// Callers get their own copies of the items, as CustomerCache does, so editing one before saving it
+// cannot change what everyone else reads from the cache.
+public class CalendarCache<T> implements ChangeListener<T> {
+
+    public enum Span { WEEK, MONTH }
+
+    @FunctionalInterface
+    public interface RangeLoader<T> {
+        // Items dated in [start, end)
+        List<T> load(LocalDateTime start, LocalDateTime end) throws SQLException;
+    }
+
+    private final RangeLoader<T> loader;
+    private final Function<T, UUID> idOf;
+    private final Function<T, LocalDateTime> dateOf;
+    private final UnaryOperator<T> copyOf;
+    private final int maxBuckets;
+
+    private final LinkedHashMap<Bucket, List<T>> buckets = new LinkedHashMap<>(16, 0.75f, true);
+    // Which cached buckets each item appears in
+    private final Map<UUID, Set<Bucket>> bucketsOf = new HashMap<>();
+    // Bumped on every invalidation; a load that started before it must not be cached
+    private long generation;
+
+    public CalendarCache(RangeLoader<T> loader, Function<T, UUID> idOf, Function<T, LocalDateTime> dateOf,
+                         UnaryOperator<T> copyOf, int maxBuckets) {
+        this.loader = loader;
+        this.idOf = idOf;
+        this.dateOf = dateOf;
+        this.copyOf = copyOf;
+        this.maxBuckets = maxBuckets;
+    }
+
+    // ----------------------------
+    // LOOKUP
+    // ----------------------------
+    // The ISO week (Monday to Sunday) or calendar month containing the day
+    public List<T> get(Span span, LocalDate day) throws SQLException {
+        Bucket bucket = Bucket.of(span, day);
+        long stamp;
+        synchronized (this) {
+            List<T> cached = buckets.get(bucket);
+            if (cached != null) {
+                return copies(cached);
+            }
+            stamp = generation;
+        }
+
+        List<T> items = List.copyOf(loader.load(bucket.start.atStartOfDay(), bucket.end().atStartOfDay()));
+        synchronized (this) {
+            if (stamp == generation) {
+                put(bucket, items);
+            }
+        }
+        return copies(items);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        buckets.clear();
+        bucketsOf.clear();
+    }
+
+    public synchronized int size() { return buckets.size(); }
+
+    // ----------------------------
+    // INVALIDATION
+    // ----------------------------
+    @Override
+    public void inserted(T item) { invalidate(idOf.apply(item), dateOf.apply(item)); }
+
+    @Override
+    public void updated(T item) { invalidate(idOf.apply(item), dateOf.apply(item)); }
+
+    @Override
+    public void deleted(UUID id) { invalidate(id, null); }
+
+    private synchronized void invalidate(UUID id, LocalDateTime date) {
+        generation++;
+        Set<Bucket> stale = new HashSet<>();
+        Set<Bucket> previous = bucketsOf.get(id);
+        if (previous != null) {
+            stale.addAll(previous);
+        }
+        if (date != null) {
+            stale.add(Bucket.of(Span.WEEK, date.toLocalDate()));
+            stale.add(Bucket.of(Span.MONTH, date.toLocalDate()));
+        }
+        stale.forEach(this::remove);
+    }
+
+    // ----------------------------
+    // HELPER METHODS
+    // ----------------------------
+    private List<T> copies(List<T> items) {
+        List<T> copies = new ArrayList<>(items.size());
+        for (T item : items) {
+            copies.add(copyOf.apply(item));
+        }
+        return copies;
+    }
+
+    private void put(Bucket bucket, List<T> items) {
+        buckets.put(bucket, items);
+        for (T item : items) {
+            bucketsOf.computeIfAbsent(idOf.apply(item), id -> new HashSet<>()).add(bucket);
+        }
+        Iterator<Bucket> eldest = buckets.keySet().iterator();
+        List<Bucket> evicted = new ArrayList<>();
+        while (buckets.size() - evicted.size() > maxBuckets && eldest.hasNext()) {
+            evicted.add(eldest.next());
+        }
+        evicted.forEach(this::remove);
+    }
+
+    private void remove(Bucket bucket) {
+        List<T> items = buckets.remove(bucket);
+        if (items == null) {
+            return;
+        }
+        for (T item : items) {
+            UUID id = idOf.apply(item);
+            Set<Bucket> in = bucketsOf.get(id);
+            in.remove(bucket);
+            if (in.isEmpty()) {
+                bucketsOf.remove(id);
+            }
+        }
+    }
+
+    private static class Bucket {
+        private final Span span;
+        private final LocalDate start;
+
+        private Bucket(Span span, LocalDate start) {
+            this.span = span;
+            this.start = start;
+        }
+
+        static Bucket of(Span span, LocalDate day) {
+            return new Bucket(span, span == Span.WEEK
+                    ? day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                    : day.withDayOfMonth(1));
+        }
+
+        LocalDate end() {
+            return span == Span.WEEK ? start.plusWeeks(1) : start.plusMonths(1);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Bucket)) return false;
+            Bucket other = (Bucket) obj;
+            return span == other.span && start.equals(other.start);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(span, start);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+import java.util.UUID;
+
+// Told about rows a DAO has written, after the write succeeded.
+// Called on the writing thread, so implementations should be quick and must not throw.
+public interface ChangeListener<T> {
+
+    default void inserted(T item) {}
+
+    default void updated(T item) {}
+
+    // Also given the row as it was before the write (null unless some listener on the DAO needsBefore());
+    // by default only the new version is passed on
+    default void updated(T before, T after) { updated(after); }
+
+    default void deleted(UUID id) {}
+
+    default void deleted(UUID id, T before) { deleted(id); }
+
+    // Whether the DAO should read the previous row before an update or delete. That costs a transaction
+    // and a row lock per write, so only listeners that use it should say yes.
+    default boolean needsBefore() { return false; }
+}
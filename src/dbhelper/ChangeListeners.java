@@ -0,0 +1,75 @@
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// The listeners registered on one DAO. A failing listener is reported and skipped;
+// it never turns a committed write into an error for the caller.
+// Inside a UnitOfWork, events are delivered once it commits and dropped if it rolls back.
+public class ChangeListeners<T> {
+
+    private final List<ChangeListener<T>> listeners = new CopyOnWriteArrayList<>();
+
+    public void add(ChangeListener<T> listener) { listeners.add(listener); }
+    public void remove(ChangeListener<T> listener) { listeners.remove(listener); }
+
+    // True when a registered listener wants updates and deletes to carry the previous row
+    public boolean needsBefore() {
+        for (ChangeListener<T> listener : listeners) {
+            if (listener.needsBefore()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void fireInserted(T item) { fire(l -> l.inserted(item)); }
+    public void fireUpdated(T before, T after) { fire(l -> l.updated(before, after)); }
+    public void fireDeleted(UUID id, T before) { fire(l -> l.deleted(id, before)); }
+
+    // Batch variants only report the rows that went through, in the order they were submitted
+    public void fireInserted(Collection<T> items, BatchResult result) {
+        forEachSucceeded(items, result, this::fireInserted);
+    }
+
+    // before: the rows as they were, by id (empty when no listener needsBefore())
+    public void fireUpdated(Map<UUID, T> before, Collection<T> items, Function<T, UUID> idOf, BatchResult result) {
+        forEachSucceeded(items, result, item -> fireUpdated(before.get(idOf.apply(item)), item));
+    }
+
+    public void fireDeleted(Map<UUID, T> before, Collection<UUID> ids, BatchResult result) {
+        forEachSucceeded(ids, result, id -> fireDeleted(id, before.get(id)));
+    }
+
+    private <E> void forEachSucceeded(Collection<E> items, BatchResult result, Consumer<E> action) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        int index = 0;
+        for (E item : items) {
+            if (!result.getFailures().containsKey(index++)) {
+                action.accept(item);
+            }
+        }
+    }
+
+    private void fire(Consumer<ChangeListener<T>> event) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        UnitOfWork.afterCommit(() -> deliver(event));
+    }
+
+    private void deliver(Consumer<ChangeListener<T>> event) {
+        for (ChangeListener<T> listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+}
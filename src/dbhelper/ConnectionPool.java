@@ -0,0 +1,400 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bounded pool of physical MySQL connections.
+// Callers get a proxy whose close() hands the connection back instead of closing the socket,
+// so the existing try-with-resources blocks in the DAOs keep working unchanged.
+// prepareStatement(String) is served from a per-connection StatementCache in the same way.
+public class ConnectionPool {
+
+    // Connections used within this window are trusted without a validation round trip
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final int statementCacheSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledEntry> idle = new ArrayDeque<>();
+    private final Set<PooledEntry> borrowed = ConcurrentHashMap.newKeySet();
+    private int total;
+    private int waiters;
+    private boolean closed;
+
+    private final LatencyHistogram acquireTimes = new LatencyHistogram();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final ScheduledExecutorService housekeeper;
+
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                          long acquireTimeoutMillis, long idleTimeoutMillis, long leakThresholdMillis,
+                          int statementCacheSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.statementCacheSize = statementCacheSize;
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "crm-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000, Math.min(idleTimeoutMillis, leakThresholdMillis > 0 ? leakThresholdMillis : Long.MAX_VALUE) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    // ----------------------------
+    // ACQUIRE / RELEASE
+    // ----------------------------
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+
+        while (true) {
+            PooledEntry entry;
+            boolean create = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed.");
+                    }
+                    entry = idle.pollFirst();
+                    if (entry != null) {
+                        break;
+                    }
+                    if (total < maxSize) {
+                        total++;
+                        create = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts.increment();
+                        throw new SQLTimeoutException("Timed out after " + acquireTimeoutMillis +
+                                " ms waiting for a connection (active=" + borrowed.size() + ", max=" + maxSize + ").");
+                    }
+                    waiters++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a connection.", ex);
+                    } finally {
+                        waiters--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                try {
+                    entry = new PooledEntry(DriverManager.getConnection(url, user, password));
+                } catch (SQLException ex) {
+                    releaseSlot();
+                    throw ex;
+                }
+            } else if (!isAlive(entry)) {
+                discard(entry);
+                continue;
+            }
+
+            entry.borrowedAt = System.currentTimeMillis();
+            entry.borrowTrace = leakThresholdMillis > 0 ? new Exception("Connection acquired here") : null;
+            entry.leakReported = false;
+            borrowed.add(entry);
+            acquireTimes.record(System.nanoTime() - start);
+            return entry.lease();
+        }
+    }
+
+    private void release(PooledEntry entry) {
+        borrowed.remove(entry);
+        entry.statements.releaseAll();
+        try {
+            Connection conn = entry.physical;
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            if (conn.isReadOnly()) {
+                conn.setReadOnly(false);
+            }
+            conn.clearWarnings();
+        } catch (SQLException ex) {
+            // A connection that cannot be reset is not safe to hand out again
+            discard(entry);
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (closed) {
+                total--;
+                closeQuietly(entry);
+                return;
+            }
+            entry.lastUsed = System.currentTimeMillis();
+            idle.addFirst(entry);
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isAlive(PooledEntry entry) {
+        if (System.currentTimeMillis() - entry.lastUsed < VALIDATION_BYPASS_MILLIS) {
+            return true;
+        }
+        try {
+            return entry.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private void discard(PooledEntry entry) {
+        closeQuietly(entry);
+        releaseSlot();
+    }
+
+    private void releaseSlot() {
+        lock.lock();
+        try {
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeQuietly(PooledEntry entry) {
+        try {
+            entry.physical.close();
+        } catch (SQLException ignored) {
+            // already broken
+        }
+    }
+
+    // ----------------------------
+    // HOUSEKEEPING
+    // ----------------------------
+    private void housekeep() {
+        evictIdle();
+        detectLeaks();
+        fillToMinimum();
+    }
+
+    private void evictIdle() {
+        List<PooledEntry> evicted = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            // Least recently used entries sit at the tail
+            Iterator<PooledEntry> it = idle.descendingIterator();
+            while (it.hasNext() && total > minSize) {
+                PooledEntry entry = it.next();
+                if (now - entry.lastUsed < idleTimeoutMillis) {
+                    break;
+                }
+                it.remove();
+                total--;
+                evicted.add(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+        evicted.forEach(this::closeQuietly);
+    }
+
+    private void detectLeaks() {
+        if (leakThresholdMillis <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (PooledEntry entry : borrowed) {
+            if (!entry.leakReported && now - entry.borrowedAt > leakThresholdMillis) {
+                entry.leakReported = true;
+                leaks.increment();
+                System.err.println("Possible connection leak: connection held for " +
+                        (now - entry.borrowedAt) + " ms without being closed.");
+                if (entry.borrowTrace != null) {
+                    entry.borrowTrace.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void fillToMinimum() {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || total >= minSize) {
+                    return;
+                }
+                total++;
+            } finally {
+                lock.unlock();
+            }
+
+            PooledEntry entry;
+            try {
+                entry = new PooledEntry(DriverManager.getConnection(url, user, password));
+            } catch (SQLException ex) {
+                // Database is unreachable right now; try again on the next run
+                releaseSlot();
+                return;
+            }
+            lock.lock();
+            try {
+                if (closed) {
+                    total--;
+                    closeQuietly(entry);
+                    return;
+                }
+                idle.addLast(entry);
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // ----------------------------
+    // STATS / SHUTDOWN
+    // ----------------------------
+    public PoolStats getStats() {
+        lock.lock();
+        try {
+            return new PoolStats(borrowed.size(), idle.size(), total, waiters, maxSize,
+                    timeouts.sum(), leaks.sum(), acquireTimes, statementHits.sum(), statementMisses.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() {
+        List<PooledEntry> toClose;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            total -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeper.shutdownNow();
+        // Borrowed connections are closed as they come back
+        toClose.forEach(this::closeQuietly);
+    }
+
+    // ----------------------------
+    // POOLED CONNECTION
+    // ----------------------------
+    private class PooledEntry {
+        private final Connection physical;
+        private final StatementCache statements;
+        private volatile long lastUsed = System.currentTimeMillis();
+        private volatile long borrowedAt;
+        private volatile Exception borrowTrace;
+        private volatile boolean leakReported;
+
+        PooledEntry(Connection physical) {
+            this.physical = physical;
+            this.statements = new StatementCache(physical, statementCacheSize, statementHits, statementMisses);
+        }
+
+        // Every borrow gets its own proxy, so a stale reference closed twice cannot return the entry twice
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LeaseHandler(this));
+        }
+    }
+
+    private class LeaseHandler implements InvocationHandler {
+        private final PooledEntry entry;
+        private boolean closed;
+
+        LeaseHandler(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + entry.physical + "]";
+                default:
+                    if (closed) {
+                        throw new SQLException("Connection is closed.");
+                    }
+            }
+            if (method.getName().equals("prepareStatement") && args.length == 1) {
+                return entry.statements.prepare((String) args[0]);
+            }
+            try {
+                return method.invoke(entry.physical, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+}
@@ -1,14 +1,72 @@
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DBHelper {
-    private static final String DB_URL="jdbc:mysql://localhost:3306/crm_db";
+    // Server-side prepared statements, so cached statements skip re-parsing on the MySQL side too,
+    // and rewritten batches, so executeBatch() sends one multi-row statement per chunk
+    private static final String DB_URL="jdbc:mysql://localhost:3306/crm_db?useServerPrepStmts=true&rewriteBatchedStatements=true";
+    // Multi-statement requests, so Customer360Loader can fetch a whole customer in one round trip. Only its
+    // connections allow them, so nothing else can have a second statement stacked onto its SQL.
+    private static final String MULTI_QUERY_URL=DB_URL+"&allowMultiQueries=true";
     private static final String USER="root";
     private static final String PASS=""; //use your personal password
 
+    // Pool sizing, overridable with -Dcrm.pool.<name>=value
+    private static final int POOL_MIN_SIZE=Integer.getInteger("crm.pool.minSize",2);
+    private static final int POOL_MAX_SIZE=Integer.getInteger("crm.pool.maxSize",10);
+    private static final long ACQUIRE_TIMEOUT_MS=Long.getLong("crm.pool.acquireTimeoutMs",30_000);
+    private static final long IDLE_TIMEOUT_MS=Long.getLong("crm.pool.idleTimeoutMs",600_000);
+    private static final long LEAK_THRESHOLD_MS=Long.getLong("crm.pool.leakThresholdMs",60_000); //0 disables
+    private static final int STATEMENT_CACHE_SIZE=Integer.getInteger("crm.pool.statementCacheSize",64); //per connection, 0 disables
+    private static final int MULTI_QUERY_POOL_MAX_SIZE=Integer.getInteger("crm.pool.multiQueryMaxSize",4);
+
+    // Created on first use so the pool only starts once something touches the database
+    private static class PoolHolder {
+        private static final ConnectionPool POOL = new ConnectionPool(DB_URL, USER, PASS,
+                POOL_MIN_SIZE, POOL_MAX_SIZE, ACQUIRE_TIMEOUT_MS, IDLE_TIMEOUT_MS, LEAK_THRESHOLD_MS,
+                STATEMENT_CACHE_SIZE);
+    }
+
+    private static class MultiQueryPoolHolder {
+        private static final ConnectionPool POOL;
+        static {
+            POOL = new ConnectionPool(MULTI_QUERY_URL, USER, PASS,
+                    0, MULTI_QUERY_POOL_MAX_SIZE, ACQUIRE_TIMEOUT_MS, IDLE_TIMEOUT_MS, LEAK_THRESHOLD_MS,
+                    STATEMENT_CACHE_SIZE);
+            multiQueryPoolStarted=true;
+        }
+    }
+
+    private static volatile boolean multiQueryPoolStarted;
+
+    // Inside a UnitOfWork, the unit's connection (closing it is a no-op)
     public static Connection getConnection() throws SQLException{
-        return DriverManager.getConnection(DB_URL,USER,PASS);
+        Connection shared=UnitOfWork.currentConnection();
+        if(shared!=null){
+            return shared;
+        }
+        return PoolHolder.POOL.getConnection();
+    }
+
+    // A connection that accepts several ;-separated statements in one request. It is never the connection
+    // of a UnitOfWork, so inside one use getConnection() and send the statements one at a time.
+    public static Connection getMultiQueryConnection() throws SQLException{
+        return MultiQueryPoolHolder.POOL.getConnection();
+    }
+
+    public static PoolStats getPoolStats(){
+        return PoolHolder.POOL.getStats();
+    }
+
+    public static int getPoolMaxSize(){
+        return POOL_MAX_SIZE;
+    }
+
+    public static void shutdown(){
+        PoolHolder.POOL.close();
+        if(multiQueryPoolStarted){
+            MultiQueryPoolHolder.POOL.close();
+        }
     }
 
 }
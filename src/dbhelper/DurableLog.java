@@ -0,0 +1,267 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Append-only local log for write-behind: records are made durable here first and applied elsewhere later.
+//
+// Each record is framed as [length][CRC32][payload]. append() returns once the record is on disk, with
+// group commit: while one caller runs fsync, every other caller queues behind it and the next fsync
+// covers them all, so under load many appends share one disk flush.
+//
+// Positions are logical and only grow. The consumer reads from the flushed position and, once the records
+// are applied, moves it forward with markFlushed(); that position is kept in <log>.offset. When all of the
+// log has been flushed and the file has grown past COMPACT_BYTES it is truncated. On open, a torn record
+// at the tail (a crash in the middle of a write) is cut off and everything after the flushed position is
+// pending again, ready to be replayed.
+public class DurableLog implements Closeable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+    // -Dcrm.writeBehind.compactBytes
+    private static final long COMPACT_BYTES = Long.getLong("crm.writeBehind.compactBytes", 64L * 1024 * 1024);
+
+    public static class Record {
+        private final long end;
+        private final byte[] payload;
+
+        Record(long end, byte[] payload) {
+            this.end = end;
+            this.payload = payload;
+        }
+
+        // Position just after this record; pass it to markFlushed()
+        public long getEnd() { return end; }
+        public byte[] getPayload() { return payload; }
+    }
+
+    private final Path offsetFile;
+    private final FileChannel channel;
+
+    // Guarded by appendLock. File position = logical position - base.
+    private final Object appendLock = new Object();
+    private long base;
+    private volatile long written;
+    private volatile long flushed;
+
+    // Group commit
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition syncDone = syncLock.newCondition();
+    private long synced;
+    private boolean syncing;
+
+    public DurableLog(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.offsetFile = file.resolveSibling(file.getFileName() + ".offset");
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long[] offsets = readOffsets();
+        base = offsets[0];
+        flushed = offsets[1];
+        if (base + channel.size() < flushed) {
+            // Crashed between truncating the file and recording it; everything had been flushed
+            base = flushed - channel.size();
+        }
+        written = base + validLength(flushed - base);
+        channel.truncate(written - base);
+        channel.force(true);
+        synced = written;
+    }
+
+    // ----------------------------
+    // WRITING
+    // ----------------------------
+    // Returns the position after the record, once the record has been synced to disk
+    public long append(byte[] payload) throws IOException {
+        if (payload.length > MAX_RECORD_BYTES) {
+            throw new IOException("Record of " + payload.length + " bytes is larger than " + MAX_RECORD_BYTES);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+
+        long end;
+        synchronized (appendLock) {
+            long position = written - base;
+            while (frame.hasRemaining()) {
+                position += channel.write(frame, position);
+            }
+            written += frame.capacity();
+            end = written;
+        }
+        awaitSync(end);
+        return end;
+    }
+
+    // The first waiter runs fsync for everything written so far; the rest wait for it and are usually covered
+    private void awaitSync(long end) throws IOException {
+        syncLock.lock();
+        try {
+            while (synced < end) {
+                if (syncing) {
+                    syncDone.await();
+                    continue;
+                }
+                syncing = true;
+                long target = written;
+                IOException failure = null;
+                syncLock.unlock();
+                try {
+                    channel.force(false);
+                } catch (IOException ex) {
+                    failure = ex;
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                    if (failure == null) {
+                        synced = Math.max(synced, target);
+                    }
+                    syncDone.signalAll();
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the log to sync");
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // ----------------------------
+    // CONSUMING
+    // ----------------------------
+    // Up to max records after the flushed position. Meant for a single consumer thread.
+    public List<Record> read(int max) throws IOException {
+        long from;
+        long to;
+        long offset;
+        synchronized (appendLock) {
+            from = flushed;
+            to = written;
+            offset = base;
+        }
+        List<Record> records = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        long position = from;
+        while (records.size() < max && position < to) {
+            header.clear();
+            readFully(header, position - offset);
+            int length = header.getInt(0);
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position - offset + HEADER_BYTES);
+            position += HEADER_BYTES + length;
+            records.add(new Record(position, payload.array()));
+        }
+        return records;
+    }
+
+    // Records up to the position have been applied; they are not replayed again
+    public void markFlushed(long position) throws IOException {
+        synchronized (appendLock) {
+            if (position <= flushed || position > written) {
+                return;
+            }
+            flushed = position;
+            if (flushed == written && written - base >= COMPACT_BYTES) {
+                // Nothing left to replay: start the file over. Truncate first, so a crash in between
+                // leaves an empty file that open() recognises, never old records behind a newer offset.
+                channel.truncate(0);
+                channel.force(true);
+                base = written;
+            }
+            writeOffsets(base, flushed);
+        }
+    }
+
+    public boolean hasPending() { return flushed < written; }
+
+    // End of the last record appended, and how far the consumer has got; a record is applied once
+    // getFlushedPosition() has reached the position append() returned for it
+    public long getWrittenPosition() { return written; }
+    public long getFlushedPosition() { return flushed; }
+
+    // Bytes appended but not yet flushed
+    public long pendingBytes() { return written - flushed; }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // ----------------------------
+    // HELPER METHODS
+    // ----------------------------
+    // Length of the intact records from the start position on; stops at the first short or corrupt frame
+    private long validLength(long start) throws IOException {
+        long size = channel.size();
+        long position = Math.max(0, start);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, position);
+            int length = header.getInt(0);
+            if (length < 0 || length > MAX_RECORD_BYTES || position + HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + HEADER_BYTES);
+            crc.reset();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != header.getInt(4)) {
+                break;
+            }
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new EOFException("Log ends at " + (position + buffer.position()));
+            }
+        }
+    }
+
+    private long[] readOffsets() throws IOException {
+        if (!Files.exists(offsetFile)) {
+            return new long[]{0, 0};
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(offsetFile));
+        return new long[]{buffer.getLong(), buffer.getLong()};
+    }
+
+    // Written to a temporary file and renamed, so a crash leaves the old offsets or the new ones
+    private void writeOffsets(long base, long flushed) throws IOException {
+        Path tmp = offsetFile.resolveSibling(offsetFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(16).putLong(base).putLong(flushed).flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(tmp, offsetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
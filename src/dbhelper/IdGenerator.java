@@ -0,0 +1,7 @@
+import java.util.UUID;
+
+// Source of primary keys for new entities. UUID::randomUUID is a valid implementation.
+@FunctionalInterface
+public interface IdGenerator {
+    UUID nextId();
+}
@@ -0,0 +1,18 @@
+import java.util.Objects;
+import java.util.UUID;
+
+// Where entity constructors get their ids from. Defaults to time-ordered UUIDv7.
+public class Ids {
+
+    private static volatile IdGenerator generator = new UuidV7Generator();
+
+    public static UUID next() {
+        return generator.nextId();
+    }
+
+    public static IdGenerator getGenerator() { return generator; }
+
+    public static void setGenerator(IdGenerator generator) {
+        Ids.generator = Objects.requireNonNull(generator, "generator");
+    }
+}
@@ -0,0 +1,132 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+// Looks up rows for many ids with "column IN (?, ?, ...)" instead of one query per id.
+// The ids are split into fixed-size chunks that run in parallel on pooled connections,
+// or one after the other on the caller's connection inside a UnitOfWork.
+public class InListQuery {
+
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    // One worker per pooled connection; more would only queue inside the pool
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(DBHelper.getPoolMaxSize(), r -> {
+        Thread t = new Thread(r, "crm-in-list-query");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Every requested id is a key in the result, mapped to an empty list when nothing matched
+    public static <T> Map<UUID, List<T>> findGrouped(String table, String column, Collection<UUID> ids,
+                                                     RowMapper<T> mapper, Function<T, UUID> keyOf)
+            throws SQLException {
+        return query(table, column, ids, mapper, keyOf, "");
+    }
+
+    // The rows with these primary keys, locked (SELECT ... FOR UPDATE) until the current UnitOfWork ends.
+    // Ids with no row are left out.
+    public static <T> Map<UUID, T> lock(String table, Collection<UUID> ids, RowMapper<T> mapper,
+                                        Function<T, UUID> idOf) throws SQLException {
+        if (!UnitOfWork.isActive()) {
+            throw new IllegalStateException("Rows can only be locked inside a unit of work");
+        }
+        Map<UUID, T> rows = new HashMap<>();
+        query(table, "id", ids, mapper, idOf, " FOR UPDATE").forEach((id, found) -> {
+            if (!found.isEmpty()) {
+                rows.put(id, found.get(0));
+            }
+        });
+        return rows;
+    }
+
+    private static <T> Map<UUID, List<T>> query(String table, String column, Collection<UUID> ids,
+                                                RowMapper<T> mapper, Function<T, UUID> keyOf, String suffix)
+            throws SQLException {
+        List<UUID> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<UUID, List<T>> result = new HashMap<>();
+        for (UUID id : unique) {
+            result.put(id, new ArrayList<>());
+        }
+        if (unique.isEmpty()) {
+            return result;
+        }
+
+        List<List<UUID>> chunks = new ArrayList<>();
+        for (int from = 0; from < unique.size(); from += DEFAULT_CHUNK_SIZE) {
+            chunks.add(unique.subList(from, Math.min(from + DEFAULT_CHUNK_SIZE, unique.size())));
+        }
+        // Short lists get a smaller IN-list; longer ones all share the full-size SQL text
+        int width = Math.min(unique.size(), DEFAULT_CHUNK_SIZE);
+        String sql = "SELECT * FROM " + table + " WHERE " + column + " IN (" +
+                String.join(", ", Collections.nCopies(width, "?")) + ")" + suffix;
+
+        // Inside a UnitOfWork every chunk must run on its connection, or rows it wrote would be missing
+        if (chunks.size() == 1 || UnitOfWork.isActive()) {
+            for (List<UUID> chunk : chunks) {
+                collect(runChunk(sql, width, chunk, mapper), keyOf, result);
+            }
+            return result;
+        }
+
+        List<Future<List<T>>> futures = new ArrayList<>();
+        for (List<UUID> chunk : chunks) {
+            futures.add(EXECUTOR.submit(() -> runChunk(sql, width, chunk, mapper)));
+        }
+        try {
+            for (Future<List<T>> future : futures) {
+                collect(future.get(), keyOf, result);
+            }
+        } catch (ExecutionException ex) {
+            futures.forEach(f -> f.cancel(true));
+            if (ex.getCause() instanceof SQLException) {
+                throw (SQLException) ex.getCause();
+            }
+            throw new SQLException("IN-list query on " + table + " failed.", ex.getCause());
+        } catch (InterruptedException ex) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while querying " + table + ".", ex);
+        }
+        return result;
+    }
+
+    private static <T> List<T> runChunk(String sql, int width, List<UUID> chunk, RowMapper<T> mapper)
+            throws SQLException {
+        List<T> rows = new ArrayList<>();
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            // The last chunk is padded with a repeated id so every chunk reuses the same cached statement
+            for (int i = 0; i < width; i++) {
+                UUID id = chunk.get(Math.min(i, chunk.size() - 1));
+                pstmt.setBytes(i + 1, UuidCodec.toBytes(id));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static <T> void collect(List<T> rows, Function<T, UUID> keyOf, Map<UUID, List<T>> result) {
+        for (T row : rows) {
+            result.get(keyOf.apply(row)).add(row);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Keyset pagination over (created_at, id).
+// Each page seeks straight to the last key of the previous one, so page N costs the same as page 1,
+// unlike LIMIT/OFFSET which has to read and throw away every earlier row.
+public class KeysetPager {
+
+    public static final int MAX_PAGE_SIZE = 1_000;
+
+    // The comparison is spelled out instead of (created_at, id) > (?, ?) so MySQL can range-scan the index
+    static String pageSql(String table, boolean after) {
+        return after
+                ? "SELECT * FROM " + table + " WHERE created_at > ? OR (created_at = ? AND id > ?) " +
+                  "ORDER BY created_at, id LIMIT ?"
+                : "SELECT * FROM " + table + " ORDER BY created_at, id LIMIT ?";
+    }
+
+    public static <T> Page<T> fetch(String table, int pageSize, String cursor, RowMapper<T> mapper) throws SQLException {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE + ": " + pageSize);
+        }
+        Key after = cursor == null ? null : decode(cursor);
+
+        String sql = pageSql(table, after != null);
+
+        List<T> items = new ArrayList<>();
+        Key last = null;
+        boolean more = false;
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int i = 1;
+            if (after != null) {
+                pstmt.setTimestamp(i++, after.createdAt);
+                pstmt.setTimestamp(i++, after.createdAt);
+                pstmt.setBytes(i++, after.id);
+            }
+            // One extra row tells us whether there is a next page without a COUNT(*)
+            pstmt.setInt(i, pageSize + 1);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (items.size() == pageSize) {
+                        more = true;
+                        break;
+                    }
+                    items.add(mapper.map(rs));
+                    last = new Key(rs.getTimestamp("created_at"), rs.getBytes("id"));
+                }
+            }
+        }
+        return new Page<>(items, more ? encode(last) : null);
+    }
+
+    // Returns the cursor that sits `rows` rows after the given one (null = start of the table),
+    // or null when that is past the end. Reads only the (created_at, id) index, never the rows,
+    // so a scrollbar jump deep into a large table stays cheap.
+    public static String skip(String table, String cursor, long rows) throws SQLException {
+        if (rows <= 0) {
+            return cursor;
+        }
+        Key after = cursor == null ? null : decode(cursor);
+        String sql = after == null
+                ? "SELECT created_at, id FROM " + table + " ORDER BY created_at, id LIMIT 1 OFFSET ?"
+                : "SELECT created_at, id FROM " + table + " WHERE created_at > ? OR (created_at = ? AND id > ?) " +
+                  "ORDER BY created_at, id LIMIT 1 OFFSET ?";
+
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int i = 1;
+            if (after != null) {
+                pstmt.setTimestamp(i++, after.createdAt);
+                pstmt.setTimestamp(i++, after.createdAt);
+                pstmt.setBytes(i++, after.id);
+            }
+            pstmt.setLong(i, rows - 1);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? encode(new Key(rs.getTimestamp("created_at"), rs.getBytes("id"))) : null;
+            }
+        }
+    }
+
+    // Every row after the cursor (null = start of the table) in key order, from a streaming cursor.
+    // Pairs with cursorOf(rs) to pick an interrupted scan up where it stopped.
+    public static <T> Stream<T> stream(String table, String cursor, RowMapper<T> mapper) throws SQLException {
+        if (cursor == null) {
+            return RowStreams.stream("SELECT * FROM " + table + " ORDER BY created_at, id", mapper);
+        }
+        Key after = decode(cursor);
+        return RowStreams.stream("SELECT * FROM " + table + " WHERE created_at > ? OR (created_at = ? AND id > ?) " +
+                "ORDER BY created_at, id", mapper, after.createdAt, after.createdAt, after.id);
+    }
+
+    // Cursor positioned just after the current row
+    public static String cursorOf(ResultSet rs) throws SQLException {
+        return encode(new Key(rs.getTimestamp("created_at"), rs.getBytes("id")));
+    }
+
+    public static long count(String table) throws SQLException {
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM " + table);
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // ----------------------------
+    // CURSOR
+    // ----------------------------
+    private static class Key {
+        private final Timestamp createdAt;
+        private final byte[] id;
+
+        Key(Timestamp createdAt, byte[] id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+    }
+
+    private static String encode(Key key) {
+        String raw = key.createdAt + "|" + UuidCodec.toHex(key.id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Key decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return new Key(Timestamp.valueOf(raw.substring(0, sep)), UuidCodec.fromHex(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException | StringIndexOutOfBoundsException ex) {
+            throw new IllegalArgumentException("Invalid page cursor: " + cursor, ex);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fixed-bucket latency histogram. Cheap enough to record on every call.
+public class LatencyHistogram {
+
+    // Upper bounds (exclusive) of each bucket in microseconds; the last bucket is open ended
+    private static final long[] BOUNDS_MICROS = {100, 1_000, 10_000, 100_000, 1_000_000};
+    private static final String[] LABELS = {"<100us", "<1ms", "<10ms", "<100ms", "<1s", ">=1s"};
+
+    private final LongAdder[] buckets = new LongAdder[LABELS.length];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        int i = 0;
+        while (i < BOUNDS_MICROS.length && micros >= BOUNDS_MICROS[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        count.increment();
+        totalNanos.add(nanos);
+    }
+
+    public long getCount() { return count.sum(); }
+
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / (double) n / 1_000_000;
+    }
+
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    public static String[] getBucketLabels() { return LABELS.clone(); }
+
+    @Override
+    public String toString() {
+        long[] counts = getBucketCounts();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(LABELS[i]).append('=').append(counts[i]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,36 @@
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// One numbered schema change. Once applied, its statements must never be edited:
+// the checksum recorded in schema_migrations would no longer match and startup fails.
+public class Migration {
+
+    private final int version;
+    private final String description;
+    private final List<String> statements;
+
+    public Migration(int version, String description, String... statements) {
+        this.version = version;
+        this.description = description;
+        this.statements = List.of(statements);
+    }
+
+    public int getVersion() { return version; }
+    public String getDescription() { return description; }
+    public List<String> getStatements() { return statements; }
+
+    public long getChecksum() {
+        CRC32 crc = new CRC32();
+        for (String statement : statements) {
+            crc.update(statement.getBytes(StandardCharsets.UTF_8));
+            crc.update('\n');
+        }
+        return crc.getValue();
+    }
+
+    @Override
+    public String toString() {
+        return "V" + version + " " + description;
+    }
+}
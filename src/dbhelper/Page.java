@@ -0,0 +1,19 @@
+import java.util.Collections;
+import java.util.List;
+
+// One page of a keyset-paginated read. Pass getNextCursor() back in to fetch the following page.
+public class Page<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean hasNext() { return nextCursor != null; }
+    public int size() { return items.size(); }
+}
@@ -0,0 +1,59 @@
+// Point-in-time snapshot of the connection pool, used for sizing
+public class PoolStats {
+
+    private final int active;
+    private final int idle;
+    private final int total;
+    private final int waiters;
+    private final int maxSize;
+    private final long timeouts;
+    private final long leaks;
+    private final LatencyHistogram acquireTimes;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+
+    public PoolStats(int active, int idle, int total, int waiters, int maxSize,
+                     long timeouts, long leaks, LatencyHistogram acquireTimes,
+                     long statementCacheHits, long statementCacheMisses) {
+        this.active = active;
+        this.idle = idle;
+        this.total = total;
+        this.waiters = waiters;
+        this.maxSize = maxSize;
+        this.timeouts = timeouts;
+        this.leaks = leaks;
+        this.acquireTimes = acquireTimes;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+    }
+
+    // Getters
+    public int getActive() { return active; }
+    public int getIdle() { return idle; }
+    public int getTotal() { return total; }
+    public int getWaiters() { return waiters; }
+    public int getMaxSize() { return maxSize; }
+    public long getTimeouts() { return timeouts; }
+    public long getLeaks() { return leaks; }
+    public LatencyHistogram getAcquireTimes() { return acquireTimes; }
+    public long getStatementCacheHits() { return statementCacheHits; }
+    public long getStatementCacheMisses() { return statementCacheMisses; }
+
+    public double getStatementCacheHitRatio() {
+        long lookups = statementCacheHits + statementCacheMisses;
+        return lookups == 0 ? 0 : statementCacheHits / (double) lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "\nActive: " + active +
+                "\nIdle: " + idle +
+                "\nTotal: " + total + "/" + maxSize +
+                "\nWaiters: " + waiters +
+                "\nTimeouts: " + timeouts +
+                "\nLeaks: " + leaks +
+                "\nAcquire Times: " + acquireTimes +
+                String.format("\nMean Acquire: %.3f ms", acquireTimes.getMeanMillis()) +
+                "\nStatement Cache: " + statementCacheHits + " hits / " + statementCacheMisses + " misses";
+    }
+}
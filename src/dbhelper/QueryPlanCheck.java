@@ -0,0 +1,94 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+// Startup self-check: runs EXPLAIN on the queries the DAOs issue and warns about any that
+// would scan a whole table. A missing or dropped index shows up here instead of as a slow screen.
+// Tiny tables are left alone; for those a full scan is the optimizer's correct choice.
+public class QueryPlanCheck {
+
+    // Full scans estimated below this many rows are not reported; -Dcrm.schema.scanWarnRows
+    private static final long SCAN_WARN_ROWS = Long.getLong("crm.schema.scanWarnRows", 1_000);
+
+    private static final byte[] ANY_ID = new byte[16];
+    private static final Timestamp ANY_TIME = new Timestamp(0);
+    // Open-ended ranges probe from now; from the epoch they would rightly pick a full scan
+    private static final Timestamp NOW = new Timestamp(System.currentTimeMillis());
+
+    // The SQL comes from the DAOs themselves, so a changed query is checked as it is now
+    private static final List<Probe> PROBES = List.of(
+            new Probe("CustomerDAO.findById", CustomerDAO.FIND_BY_ID_SQL, ANY_ID),
+            new Probe("CustomerDAO.findByEmail", CustomerDAO.FIND_BY_EMAIL_SQL, ""),
+            new Probe("CustomerDAO.findPage", KeysetPager.pageSql("customers", true), ANY_TIME, ANY_TIME, ANY_ID, 1),
+
+            new Probe("TaskDAO.findById", TaskDAO.FIND_BY_ID_SQL, ANY_ID),
+            new Probe("TaskDAO.findByCustomerId", TaskDAO.FIND_BY_CUSTOMER_SQL, ANY_ID),
+            new Probe("TaskDAO.findPage", KeysetPager.pageSql("tasks", true), ANY_TIME, ANY_TIME, ANY_ID, 1),
+            new Probe("Task timeline", Customer360Loader.timelineSql("tasks"), ANY_ID, 1),
+            new Probe("TaskDAO.findBetween", TaskDAO.betweenSql(3), "PENDING", "DONE", "CANCELLED", NOW, NOW),
+            new Probe("TaskDAO.streamPendingByDueDate", TaskDAO.PENDING_BY_DUE_SQL, "PENDING"),
+
+            new Probe("AppointmentDAO.findById", AppointmentDAO.FIND_BY_ID_SQL, ANY_ID),
+            new Probe("AppointmentDAO.findByCustomerId", AppointmentDAO.FIND_BY_CUSTOMER_SQL, ANY_ID),
+            new Probe("AppointmentDAO.findPage", KeysetPager.pageSql("appointments", true),
+                    ANY_TIME, ANY_TIME, ANY_ID, 1),
+            new Probe("Appointment timeline", Customer360Loader.timelineSql("appointments"), ANY_ID, 1),
+            new Probe("AppointmentDAO.findBetween", AppointmentDAO.betweenSql(false), NOW, NOW),
+            new Probe("AppointmentDAO.streamPendingFrom", AppointmentDAO.PENDING_FROM_SQL, NOW, "PENDING"),
+
+            new Probe("CommunicationDAO.findById", CommunicationDAO.FIND_BY_ID_SQL, ANY_ID),
+            new Probe("CommunicationDAO.findByCustomerId", CommunicationDAO.FIND_BY_CUSTOMER_SQL, ANY_ID),
+            new Probe("CommunicationDAO.findPage", KeysetPager.pageSql("communications", true),
+                    ANY_TIME, ANY_TIME, ANY_ID, 1),
+            new Probe("Communication timeline", Customer360Loader.timelineSql("communications"), ANY_ID, 1)
+    );
+
+    // Prints and returns one warning per query that falls back to a full table scan
+    public static List<String> run() throws SQLException {
+        List<String> warnings = new ArrayList<>();
+        try (Connection conn = DBHelper.getConnection()) {
+            for (Probe probe : PROBES) {
+                String warning = explain(conn, probe);
+                if (warning != null) {
+                    warnings.add(warning);
+                    System.err.println("Query plan warning: " + warning);
+                }
+            }
+        }
+        return warnings;
+    }
+
+    private static String explain(Connection conn, Probe probe) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + probe.sql)) {
+            for (int i = 0; i < probe.params.length; i++) {
+                pstmt.setObject(i + 1, probe.params[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    long rows = rs.getLong("rows");
+                    if ("ALL".equals(rs.getString("type")) && rows >= SCAN_WARN_ROWS) {
+                        return probe.name + " scans all of " + rs.getString("table") + " (~" + rows + " rows): " +
+                                probe.sql;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static class Probe {
+        private final String name;
+        private final String sql;
+        private final Object[] params;
+
+        Probe(String name, String sql, Object... params) {
+            this.name = name;
+            this.sql = sql;
+            this.params = params;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Turns the current row of a ResultSet into an object, e.g. CustomerDAO::mapResultSetToCustomer
+@FunctionalInterface
+public interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+}
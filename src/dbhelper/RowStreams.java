@@ -0,0 +1,88 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Lazily mapped rows from a forward-only, read-only cursor.
+// Connector/J streams rows one at a time when the fetch size is Integer.MIN_VALUE, so memory stays
+// flat regardless of table size. The connection is held until the stream is closed or fully consumed;
+// always use the stream in a try-with-resources block.
+public class RowStreams {
+
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    public static <T> Stream<T> stream(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        Connection conn = DBHelper.getConnection();
+        PreparedStatement pstmt = null;
+        ResultSet rs;
+        try {
+            pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(STREAMING_FETCH_SIZE);
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+            rs = pstmt.executeQuery();
+        } catch (SQLException ex) {
+            if (pstmt != null) {
+                pstmt.close();
+            }
+            conn.close();
+            throw ex;
+        }
+
+        Cursor<T> cursor = new Cursor<>(conn, pstmt, rs, mapper);
+        return StreamSupport.stream(cursor, false).onClose(cursor::close);
+    }
+
+    private static class Cursor<T> extends Spliterators.AbstractSpliterator<T> {
+        private final Connection conn;
+        private final PreparedStatement pstmt;
+        private final ResultSet rs;
+        private final RowMapper<T> mapper;
+        private boolean closed;
+
+        Cursor(Connection conn, PreparedStatement pstmt, ResultSet rs, RowMapper<T> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.conn = conn;
+            this.pstmt = pstmt;
+            this.rs = rs;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed) {
+                return false;
+            }
+            try {
+                if (!rs.next()) {
+                    // Hand the connection back as soon as the cursor is drained
+                    close();
+                    return false;
+                }
+                action.accept(mapper.map(rs));
+                return true;
+            } catch (SQLException ex) {
+                close();
+                throw new UncheckedSQLException(ex);
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try (Connection c = conn; PreparedStatement p = pstmt; ResultSet r = rs) {
+                // resources closed in reverse order
+            } catch (SQLException ex) {
+                throw new UncheckedSQLException(ex);
+            }
+        }
+    }
+}
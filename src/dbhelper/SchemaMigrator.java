@@ -0,0 +1,220 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Brings the database schema up to date at startup.
+// Migrations are numbered and applied in order, each recorded in schema_migrations with a checksum
+// of its statements; an applied migration whose statements have changed since is an error.
+// MySQL commits DDL immediately, so every statement must be safe to run again after a partial failure:
+// tables use IF NOT EXISTS, and an index or column that already exists is skipped.
+//
+// Usage: java SchemaMigrator   (migrates, then runs QueryPlanCheck)
+public class SchemaMigrator {
+
+    // ER_DUP_KEYNAME: the index is already there
+    private static final int DUPLICATE_KEY_NAME = 1061;
+    // ER_DUP_FIELDNAME: the column is already there
+    private static final int DUPLICATE_COLUMN_NAME = 1060;
+    // Held while migrating, so two application instances starting together do not race
+    private static final String LOCK_NAME = "crm_schema_migrations";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private static final String HISTORY_TABLE_SQL = "CREATE TABLE IF NOT EXISTS schema_migrations(" +
+            "version INT PRIMARY KEY, " +
+            "description VARCHAR(200) NOT NULL, " +
+            "checksum BIGINT NOT NULL, " +
+            "execution_ms BIGINT NOT NULL, " +
+            "applied_at DATETIME DEFAULT CURRENT_TIMESTAMP)";
+
+    // Append only; never edit or renumber a migration that has shipped
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Baseline schema",
+                    "CREATE TABLE IF NOT EXISTS customers(" +
+                            "id BINARY(16) PRIMARY KEY, " +
+                            "full_name VARCHAR(100) NOT NULL, " +
+                            "phone VARCHAR(20) NOT NULL, " +
+                            "email VARCHAR(100) NOT NULL UNIQUE, " +
+                            "category ENUM('VIP','REGULAR','NEW') NOT NULL, " +
+                            "notes TEXT, " +
+                            "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                            "INDEX idx_customers_created (created_at, id))",
+                    "CREATE TABLE IF NOT EXISTS appointments(" +
+                            "id BINARY(16) PRIMARY KEY, " +
+                            "customer_id BINARY(16) NOT NULL, " +
+                            "title VARCHAR(40) NOT NULL, " +
+                            "description TEXT NOT NULL, " +
+                            "appointment_date DATETIME, " +
+                            "location VARCHAR(50), " +
+                            "status ENUM('PENDING','DONE','CANCELLED') DEFAULT 'PENDING', " +
+                            "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                            "INDEX idx_appointments_created (created_at, id), " +
+                            "FOREIGN KEY (customer_id) REFERENCES customers(id))",
+                    "CREATE TABLE IF NOT EXISTS tasks(" +
+                            "id BINARY(16) PRIMARY KEY, " +
+                            "customer_id BINARY(16) NOT NULL, " +
+                            "title VARCHAR(100) NOT NULL, " +
+                            "description TEXT, " +
+                            "status ENUM('PENDING','DONE','CANCELLED') DEFAULT 'PENDING', " +
+                            "due_date DATETIME, " +
+                            "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                            "INDEX idx_tasks_created (created_at, id), " +
+                            "FOREIGN KEY (customer_id) REFERENCES customers(id))",
+                    "CREATE TABLE IF NOT EXISTS communications(" +
+                            "id BINARY(16) PRIMARY KEY, " +
+                            "customer_id BINARY(16) NOT NULL, " +
+                            "title VARCHAR(100) NOT NULL, " +
+                            "description TEXT, " +
+                            "status ENUM('EMAIL','CALL','MEETING'), " +
+                            "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                            "INDEX idx_communications_created (created_at, id), " +
+                            "FOREIGN KEY (customer_id) REFERENCES customers(id))"),
+
+            // Overdue tasks (status + due date), the appointment calendar, and per-customer timelines
+            // newest first. InnoDB appends the primary key to every secondary index, so
+            // (customer_id, created_at) also covers the "created_at DESC, id DESC" tie-break.
+            // The composite customer_id indexes take over from the ones MySQL created for the foreign keys.
+            new Migration(2, "Access-path indexes",
+                    "ALTER TABLE tasks ADD INDEX idx_tasks_status_due (status, due_date), " +
+                            "ALGORITHM=INPLACE, LOCK=NONE",
+                    "ALTER TABLE appointments ADD INDEX idx_appointments_date (appointment_date), " +
+                            "ALGORITHM=INPLACE, LOCK=NONE",
+                    "ALTER TABLE communications ADD INDEX idx_communications_customer_created (customer_id, created_at), " +
+                            "ALGORITHM=INPLACE, LOCK=NONE",
+                    "ALTER TABLE tasks ADD INDEX idx_tasks_customer_created (customer_id, created_at), " +
+                            "ALGORITHM=INPLACE, LOCK=NONE",
+                    "ALTER TABLE appointments ADD INDEX idx_appointments_customer_created (customer_id, created_at), " +
+                            "ALGORITHM=INPLACE, LOCK=NONE"),
+
+            // Subtype fields of CallCommunication and EmailCommunication, as nullable columns of the one
+            // table, so every communication query returns complete objects without a join or a second query.
+            // A single statement: MySQL DDL is atomic, so the columns are either all there or none are.
+            new Migration(3, "Communication subtype columns",
+                    "ALTER TABLE communications " +
+                            "ADD COLUMN call_duration_seconds INT NULL, " +
+                            "ADD COLUMN call_outcome ENUM('ANSWERED','MISSED','DECLINED') NULL, " +
+                            "ADD COLUMN recipient_email VARCHAR(100) NULL, " +
+                            "ADD COLUMN attachment_name VARCHAR(255) NULL, " +
+                            "ALGORITHM=INPLACE, LOCK=NONE")
+    );
+
+    public static void main(String[] args) throws SQLException {
+        try {
+            migrate();
+            QueryPlanCheck.run();
+        } finally {
+            DBHelper.shutdown();
+        }
+    }
+
+    public static List<Migration> getMigrations() {
+        return MIGRATIONS;
+    }
+
+    // Returns the number of migrations applied by this call
+    public static int migrate() throws SQLException {
+        try (Connection conn = DBHelper.getConnection()) {
+            acquireLock(conn);
+            try {
+                execute(conn, HISTORY_TABLE_SQL);
+                Map<Integer, Long> applied = appliedChecksums(conn);
+                validate(applied);
+
+                int count = 0;
+                for (Migration migration : MIGRATIONS) {
+                    if (!applied.containsKey(migration.getVersion())) {
+                        apply(conn, migration);
+                        count++;
+                    }
+                }
+                return count;
+            } finally {
+                releaseLock(conn);
+            }
+        }
+    }
+
+    // ----------------------------
+    // HELPER METHODS
+    // ----------------------------
+    private static void validate(Map<Integer, Long> applied) throws SQLException {
+        Map<Integer, Migration> known = new HashMap<>();
+        for (Migration migration : MIGRATIONS) {
+            known.put(migration.getVersion(), migration);
+        }
+        for (Map.Entry<Integer, Long> entry : applied.entrySet()) {
+            Migration migration = known.get(entry.getKey());
+            if (migration == null) {
+                // The database was migrated by a newer build; carry on, older code ignores what it does not know
+                System.err.println("Schema has migration V" + entry.getKey() + ", which this build does not know.");
+            } else if (migration.getChecksum() != entry.getValue()) {
+                throw new SQLException("Migration " + migration + " was changed after it was applied " +
+                        "(checksum " + entry.getValue() + ", now " + migration.getChecksum() + ").");
+            }
+        }
+    }
+
+    private static void apply(Connection conn, Migration migration) throws SQLException {
+        long start = System.nanoTime();
+        for (String statement : migration.getStatements()) {
+            try {
+                execute(conn, statement);
+            } catch (SQLException ex) {
+                if (ex.getErrorCode() != DUPLICATE_KEY_NAME && ex.getErrorCode() != DUPLICATE_COLUMN_NAME) {
+                    throw new SQLException("Migration " + migration + " failed on: " + statement, ex);
+                }
+            }
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        String sql = "INSERT INTO schema_migrations(version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, migration.getVersion());
+            pstmt.setString(2, migration.getDescription());
+            pstmt.setLong(3, migration.getChecksum());
+            pstmt.setLong(4, elapsedMs);
+            pstmt.executeUpdate();
+        }
+        System.out.println("Applied migration " + migration + " in " + elapsedMs + " ms.");
+    }
+
+    private static Map<Integer, Long> appliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT version, checksum FROM schema_migrations");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getLong("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    private static void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another instance to finish migrating the schema.");
+                }
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.executeQuery().close();
+        }
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
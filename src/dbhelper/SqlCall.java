@@ -0,0 +1,7 @@
+import java.sql.SQLException;
+
+// A unit of blocking database work, e.g. () -> customerDAO.findById(id)
+@FunctionalInterface
+public interface SqlCall<T> {
+    T call() throws SQLException;
+}
@@ -0,0 +1,8 @@
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+// Sets the parameters of a prepared statement for one item
+@FunctionalInterface
+public interface StatementBinder<T> {
+    void bind(PreparedStatement pstmt, T item) throws SQLException;
+}
@@ -0,0 +1,157 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// LRU cache of prepared statements for one pooled connection, keyed by SQL text.
+// A pooled connection is only ever used by one thread at a time, so no locking is needed here.
+public class StatementCache {
+
+    private final Connection physical;
+    private final int capacity;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    public StatementCache(Connection physical, int capacity, LongAdder hits, LongAdder misses) {
+        this.physical = physical;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= StatementCache.this.capacity || eldest.getValue().current != null) {
+                    return false;
+                }
+                closeQuietly(eldest.getValue().statement);
+                return true;
+            }
+        };
+    }
+
+    public PreparedStatement prepare(String sql) throws SQLException {
+        if (capacity <= 0) {
+            misses.increment();
+            return physical.prepareStatement(sql);
+        }
+        CachedStatement cached = statements.get(sql);
+        if (cached != null && cached.current == null) {
+            hits.increment();
+            return cached.handle();
+        }
+        misses.increment();
+        PreparedStatement stmt = physical.prepareStatement(sql);
+        if (cached != null) {
+            // Same SQL already open on this connection (nested use); hand out an uncached one
+            return stmt;
+        }
+        cached = new CachedStatement(stmt);
+        statements.put(sql, cached);
+        return cached.handle();
+    }
+
+    // Called when the connection goes back to the pool
+    public void releaseAll() {
+        for (CachedStatement cached : statements.values()) {
+            if (cached.current != null) {
+                cached.reset();
+            }
+        }
+    }
+
+    public int size() { return statements.size(); }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException ignored) {
+            // connection is going away
+        }
+    }
+
+    // ----------------------------
+    // CACHED STATEMENT
+    // ----------------------------
+    private static class CachedStatement {
+        private final PreparedStatement statement;
+        private Lease current;
+        private ResultSet lastResult;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        // Each checkout gets its own handle, so a stale reference cannot touch the next user's statement
+        PreparedStatement handle() {
+            current = new Lease(this);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    current);
+        }
+
+        // Puts the statement back in the state a fresh prepareStatement would return
+        void reset() {
+            current = null;
+            try {
+                if (lastResult != null) {
+                    lastResult.close();
+                    lastResult = null;
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+                statement.setMaxRows(0);
+                statement.setFetchSize(0);
+                statement.setQueryTimeout(0);
+            } catch (SQLException ignored) {
+                // the next execution will surface a broken statement
+            }
+        }
+    }
+
+    private static class Lease implements InvocationHandler {
+        private final CachedStatement cached;
+
+        Lease(CachedStatement cached) {
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (cached.current == this) {
+                        cached.reset();
+                    }
+                    return null;
+                case "isClosed":
+                    return cached.current != this || cached.statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    if (cached.current != this) {
+                        throw new SQLException("Statement is closed.");
+                    }
+            }
+            try {
+                Object result = method.invoke(cached.statement, args);
+                if (result instanceof ResultSet) {
+                    cached.lastResult = (ResultSet) result;
+                }
+                return result;
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+}
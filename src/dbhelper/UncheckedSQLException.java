@@ -0,0 +1,14 @@
+import java.sql.SQLException;
+
+// Carries a SQLException out of code that cannot throw checked exceptions, such as Stream pipelines
+public class UncheckedSQLException extends RuntimeException {
+
+    public UncheckedSQLException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
@@ -0,0 +1,228 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// One transaction across several DAO calls:
+//
+//   try (UnitOfWork uow = UnitOfWork.begin()) {
+//       customerDAO.addCustomer(customer);
+//       taskDAO.addTask(firstTask);
+//       appointmentDAO.addAppointment(firstMeeting);
+//       uow.commit();
+//   }
+//
+// While a unit is open, DBHelper.getConnection() on that thread returns the unit's connection, so every
+// DAO (and BatchWriter, KeysetPager, RowStreams...) runs on it without autocommit and the work commits
+// once. Closing without commit() rolls everything back. DAO code keeps its own try-with-resources:
+// close(), commit() and setAutoCommit() on the shared connection are ignored, and a rollback() marks the
+// whole unit to be rolled back.
+//
+// Change events are held until the commit and dropped on rollback, so caches, the search index, the
+// schedules and the dashboard counters never see work that did not happen. Whatever must be visible
+// earlier (AppointmentSchedule books a slot as soon as it is written) registers an afterRollback() undo.
+// begin() inside an open unit joins it; the outermost unit commits.
+// A unit belongs to the thread that began it; work handed to other threads (AsyncDAO) is not part of it.
+// A streaming result set (RowStreams) must be closed before the next statement on the same unit.
+public class UnitOfWork implements AutoCloseable {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private final Scope scope;
+    private final boolean outermost;
+    private boolean committed;
+
+    private UnitOfWork(Scope scope, boolean outermost) {
+        this.scope = scope;
+        this.outermost = outermost;
+    }
+
+    public static UnitOfWork begin() throws SQLException {
+        Scope scope = CURRENT.get();
+        if (scope != null) {
+            return new UnitOfWork(scope, false);
+        }
+        Connection connection = DBHelper.getConnection();
+        try {
+            connection.setAutoCommit(false);
+        } catch (SQLException ex) {
+            connection.close();
+            throw ex;
+        }
+        scope = new Scope(connection);
+        CURRENT.set(scope);
+        return new UnitOfWork(scope, true);
+    }
+
+    // Runs the work in a unit of work and commits it, or rolls back if it throws
+    public static <T> T inTransaction(SqlCall<T> work) throws SQLException {
+        try (UnitOfWork uow = begin()) {
+            T result = work.call();
+            uow.commit();
+            return result;
+        }
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    // Runs the action once the current unit commits, or right away when there is none
+    public static void afterCommit(Runnable action) {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            action.run();
+        } else {
+            scope.afterCommit.add(action);
+        }
+    }
+
+    // Runs the action if the current unit rolls back; undo steps run newest first. Without a unit there is
+    // nothing to roll back, so the action is dropped.
+    public static void afterRollback(Runnable action) {
+        Scope scope = CURRENT.get();
+        if (scope != null) {
+            scope.afterRollback.add(action);
+        }
+    }
+
+    // The shared connection of the current unit, or null; used by DBHelper
+    static Connection currentConnection() {
+        Scope scope = CURRENT.get();
+        return scope == null ? null : scope.shared;
+    }
+
+    // ----------------------------
+    // COMPLETION
+    // ----------------------------
+    public void commit() throws SQLException {
+        if (committed) {
+            throw new SQLException("Unit of work already committed");
+        }
+        committed = true;
+        if (!outermost) {
+            return;
+        }
+        if (scope.rollbackOnly) {
+            finish(false);
+            throw new SQLException("Unit of work rolled back: " + scope.rollbackReason);
+        }
+        try {
+            scope.connection.commit();
+        } catch (SQLException ex) {
+            finish(false);
+            throw ex;
+        }
+        finish(true);
+    }
+
+    // Rolls back unless committed; a nested unit makes the outermost one roll back
+    @Override
+    public void close() throws SQLException {
+        if (committed) {
+            return;
+        }
+        committed = true;
+        if (outermost) {
+            finish(false);
+        } else {
+            scope.markRollbackOnly("a nested unit of work was closed without commit");
+        }
+    }
+
+    // Ends the unit and hands the connection back; the events of a committed unit are delivered after that,
+    // so listeners that touch the database get connections of their own
+    private void finish(boolean commit) throws SQLException {
+        CURRENT.remove();
+        try (Connection connection = scope.connection) {
+            if (!commit) {
+                connection.rollback();
+            }
+            connection.setAutoCommit(true);
+        } finally {
+            if (commit) {
+                runAll(scope.afterCommit);
+            } else {
+                List<Runnable> undo = new ArrayList<>(scope.afterRollback);
+                Collections.reverse(undo);
+                runAll(undo);
+            }
+        }
+    }
+
+    private static void runAll(List<Runnable> actions) {
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private static class Scope implements InvocationHandler {
+        private final Connection connection;
+        private final Connection shared;
+        private final List<Runnable> afterCommit = new ArrayList<>();
+        private final List<Runnable> afterRollback = new ArrayList<>();
+        private boolean rollbackOnly;
+        private String rollbackReason;
+
+        Scope(Connection connection) {
+            this.connection = connection;
+            this.shared = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    this);
+        }
+
+        void markRollbackOnly(String reason) {
+            if (!rollbackOnly) {
+                rollbackOnly = true;
+                rollbackReason = reason;
+            }
+        }
+
+        // Transaction control belongs to the unit, not to the DAO code borrowing the connection
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            int arity = args == null ? 0 : args.length;
+            switch (method.getName()) {
+                case "close":
+                case "commit":
+                    if (arity == 0) {
+                        return null;
+                    }
+                    break;
+                case "rollback":
+                    if (arity == 0) {
+                        markRollbackOnly("a statement inside it was rolled back");
+                        return null;
+                    }
+                    break;
+                case "setAutoCommit":
+                    return null;
+                case "getAutoCommit":
+                    return false;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "UnitOfWork[" + connection + "]";
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+}
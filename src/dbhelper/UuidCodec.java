@@ -0,0 +1,70 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+// The one place that decides how UUIDs are stored: BINARY(16), most significant bits first.
+// Reads also accept the legacy CHAR(36) forms (dashed, or 32 hex digits) so rows that
+// UuidMigrationTool has not rewritten yet still load.
+public class UuidCodec {
+
+    public static byte[] toBytes(UUID id) {
+        if (id == null) {
+            return null;
+        }
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length == 16) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+        // A legacy CHAR(36) column read as bytes
+        return parse(new String(bytes, StandardCharsets.US_ASCII).trim());
+    }
+
+    public static UUID read(ResultSet rs, String column) throws SQLException {
+        return fromBytes(rs.getBytes(column));
+    }
+
+    // Accepts both "xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx" and the 32-digit form without dashes
+    public static UUID parse(String text) {
+        if (text.length() == 32) {
+            text = text.substring(0, 8) + "-" + text.substring(8, 12) + "-" + text.substring(12, 16) + "-" +
+                    text.substring(16, 20) + "-" + text.substring(20);
+        }
+        return UUID.fromString(text);
+    }
+
+    public static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    public static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Odd number of hex digits: " + hex);
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int hi = Character.digit(hex.charAt(2 * i), 16);
+            int lo = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0) {
+                throw new IllegalArgumentException("Invalid hex digits: " + hex);
+            }
+            bytes[i] = (byte) ((hi << 4) | lo);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,276 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Rewrites the CHAR(36) id/customer_id columns of an existing database to BINARY(16).
+//
+//   backfill  adds shadow *_bin columns and fills them in small batches while the application keeps running
+//   cutover   catches up on rows written since, then swaps the columns and rebuilds keys (brief table locks)
+//   all       backfill followed by cutover (default)
+//
+// Usage: java UuidMigrationTool [backfill|cutover|all] [batchSize] [pauseMillis]
+public class UuidMigrationTool {
+
+    private static final String[] PARENT_TABLES = {"customers"};
+    private static final String[] CHILD_TABLES = {"tasks", "appointments", "communications"};
+
+    // Handles both legacy layouts: 36-char dashed and 32-char hex
+    private static final String TO_BINARY = "UNHEX(REPLACE(%s, '-', ''))";
+
+    private final int batchSize;
+    private final long pauseMillis;
+
+    public UuidMigrationTool(int batchSize, long pauseMillis) {
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "all";
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        long pauseMillis = args.length > 2 ? Long.parseLong(args[2]) : 50;
+
+        UuidMigrationTool tool = new UuidMigrationTool(batchSize, pauseMillis);
+        try {
+            switch (mode) {
+                case "backfill" -> tool.backfill();
+                case "cutover" -> tool.cutover();
+                case "all" -> {
+                    tool.backfill();
+                    tool.cutover();
+                }
+                default -> System.err.println("Unknown mode: " + mode + " (expected backfill, cutover or all)");
+            }
+        } finally {
+            DBHelper.shutdown();
+        }
+    }
+
+    // ----------------------------
+    // PHASE 1: ONLINE BACKFILL
+    // ----------------------------
+    public void backfill() throws SQLException, InterruptedException {
+        for (String table : allTables()) {
+            if (isMigrated(table)) {
+                System.out.println(table + ": already BINARY(16), skipping.");
+                continue;
+            }
+            addShadowColumns(table);
+            long rows = backfillTable(table);
+            System.out.println(table + ": backfilled " + rows + " rows.");
+        }
+    }
+
+    private void addShadowColumns(String table) throws SQLException {
+        List<String> clauses = new ArrayList<>();
+        if (!columnExists(table, "id_bin")) {
+            clauses.add("ADD COLUMN id_bin BINARY(16) NULL");
+        }
+        if (isChild(table) && !columnExists(table, "customer_id_bin")) {
+            clauses.add("ADD COLUMN customer_id_bin BINARY(16) NULL");
+        }
+        if (!clauses.isEmpty()) {
+            execute("ALTER TABLE " + table + " " + String.join(", ", clauses) + ", ALGORITHM=INPLACE, LOCK=NONE");
+        }
+    }
+
+    // Small autocommitted batches keep row locks short and let replicas keep up
+    private long backfillTable(String table) throws SQLException, InterruptedException {
+        String sql = "UPDATE " + table + " SET id_bin = " + String.format(TO_BINARY, "id") +
+                (isChild(table) ? ", customer_id_bin = " + String.format(TO_BINARY, "customer_id") : "") +
+                " WHERE id_bin IS NULL LIMIT ?";
+        long total = 0;
+        while (true) {
+            int updated;
+            try (Connection conn = DBHelper.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, batchSize);
+                updated = pstmt.executeUpdate();
+            }
+            total += updated;
+            if (updated < batchSize) {
+                return total;
+            }
+            if (pauseMillis > 0) {
+                Thread.sleep(pauseMillis);
+            }
+        }
+    }
+
+    // ----------------------------
+    // PHASE 2: CUTOVER
+    // ----------------------------
+    public void cutover() throws SQLException, InterruptedException {
+        // Foreign keys have to go first: customers.id cannot change type while referenced
+        List<String[]> foreignKeys = new ArrayList<>();
+        for (String table : CHILD_TABLES) {
+            if (isMigrated(table)) {
+                continue;
+            }
+            for (String fk : foreignKeysOf(table)) {
+                execute("ALTER TABLE " + table + " DROP FOREIGN KEY " + fk);
+                foreignKeys.add(new String[]{table, fk});
+            }
+        }
+
+        for (String table : allTables()) {
+            if (isMigrated(table)) {
+                continue;
+            }
+            // Catch up on rows written by the old code since the backfill
+            backfillTable(table);
+
+            List<String> clauses = new ArrayList<>();
+            clauses.add("DROP PRIMARY KEY");
+            clauses.add("DROP COLUMN id");
+            clauses.add("CHANGE COLUMN id_bin id BINARY(16) NOT NULL");
+            if (isChild(table)) {
+                clauses.add("DROP COLUMN customer_id");
+                clauses.add("CHANGE COLUMN customer_id_bin customer_id BINARY(16) NOT NULL");
+            }
+            clauses.add("ADD PRIMARY KEY (id)");
+            // Every index on the swapped columns is rebuilt as it was (the V2 customer_id indexes, for one),
+            // since dropping a column silently removes it from them. SchemaMigrator would not notice.
+            Map<String, String> indexes = indexesOnIdColumns(table);
+            String createdIndex = "idx_" + table + "_created";
+            indexes.putIfAbsent(createdIndex, "INDEX " + createdIndex + " (created_at, id)");
+            for (Map.Entry<String, String> index : indexes.entrySet()) {
+                if (indexExists(table, index.getKey())) {
+                    clauses.add("DROP INDEX " + index.getKey());
+                }
+                clauses.add("ADD " + index.getValue());
+            }
+            execute("ALTER TABLE " + table + " " + String.join(", ", clauses));
+            System.out.println(table + ": switched to BINARY(16).");
+        }
+
+        for (String[] fk : foreignKeys) {
+            execute("ALTER TABLE " + fk[0] + " ADD CONSTRAINT " + fk[1] +
+                    " FOREIGN KEY (customer_id) REFERENCES customers(id)");
+        }
+    }
+
+    // ----------------------------
+    // HELPER METHODS
+    // ----------------------------
+    private static List<String> allTables() {
+        List<String> tables = new ArrayList<>(List.of(PARENT_TABLES));
+        tables.addAll(List.of(CHILD_TABLES));
+        return tables;
+    }
+
+    private static boolean isChild(String table) {
+        return !table.equals("customers");
+    }
+
+    private boolean isMigrated(String table) throws SQLException {
+        String sql = "SELECT DATA_TYPE FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = 'id'";
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getString(1).equalsIgnoreCase("binary") && !columnExists(table, "id_bin");
+            }
+        }
+    }
+
+    private boolean columnExists(String table, String column) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+        return exists(sql, table, column);
+    }
+
+    private boolean indexExists(String table, String index) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?";
+        return exists(sql, table, index);
+    }
+
+    // Secondary indexes that include id or customer_id: name -> definition for ALTER TABLE ... ADD
+    private Map<String, String> indexesOnIdColumns(String table) throws SQLException {
+        String sql = "SELECT INDEX_NAME, NON_UNIQUE, COLUMN_NAME, SUB_PART, COLLATION FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME <> 'PRIMARY' " +
+                "ORDER BY INDEX_NAME, SEQ_IN_INDEX";
+        Map<String, List<String>> columns = new LinkedHashMap<>();
+        Map<String, Boolean> unique = new HashMap<>();
+        Set<String> affected = new HashSet<>();
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String index = rs.getString("INDEX_NAME");
+                    String column = rs.getString("COLUMN_NAME");
+                    boolean idColumn = column.equals("id") || column.equals("customer_id");
+                    if (idColumn) {
+                        affected.add(index);
+                    }
+                    // A prefix length only made sense on the old CHAR column
+                    String spec = column;
+                    if (rs.getObject("SUB_PART") != null && !idColumn) {
+                        spec += "(" + rs.getInt("SUB_PART") + ")";
+                    }
+                    if ("D".equals(rs.getString("COLLATION"))) {
+                        spec += " DESC";
+                    }
+                    columns.computeIfAbsent(index, k -> new ArrayList<>()).add(spec);
+                    unique.put(index, rs.getInt("NON_UNIQUE") == 0);
+                }
+            }
+        }
+        Map<String, String> definitions = new LinkedHashMap<>();
+        for (String index : columns.keySet()) {
+            if (!affected.contains(index)) {
+                continue;
+            }
+            definitions.put(index, (unique.get(index) ? "UNIQUE INDEX " : "INDEX ") + index +
+                    " (" + String.join(", ", columns.get(index)) + ")");
+        }
+        return definitions;
+    }
+
+    private List<String> foreignKeysOf(String table) throws SQLException {
+        String sql = "SELECT CONSTRAINT_NAME FROM information_schema.KEY_COLUMN_USAGE " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND REFERENCED_TABLE_NAME = 'customers'";
+        List<String> names = new ArrayList<>();
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString(1));
+                }
+            }
+        }
+        return names;
+    }
+
+    private boolean exists(String sql, String... params) throws SQLException {
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setString(i + 1, params[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private void execute(String ddl) throws SQLException {
+        try (Connection conn = DBHelper.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(ddl);
+        }
+    }
+}
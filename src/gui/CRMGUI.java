@@ -4,19 +4,38 @@ import customer.*;
 import appointment.*;
 import task.*;
 import communication.*;
+import dbhelper.AsyncDAO;
+import dbhelper.AsyncExecutor;
 import dbhelper.DBHelper;
+import dbhelper.SqlCall;
+import search.*;
+import dashboard.*;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 public class CRMGUI extends JFrame {
 
+    private static final int SEARCH_LIMIT = 50;
+    // How far ahead of its due date a task counts as due soon; -Dcrm.taskScheduler.dueSoonMinutes
+    private static final long DUE_SOON_MINUTES = Long.getLong("crm.taskScheduler.dueSoonMinutes", 60);
+    // The dashboard only reads in-memory counters, so it can refresh often
+    private static final int DASHBOARD_REFRESH_MS = 1000;
+    // Directory for the communication write-behind log; unset writes communications straight to MySQL
+    private static final String WRITE_BEHIND_DIR = System.getProperty("crm.writeBehind.dir");
+
     private JTabbedPane tabbedPane;
 
     // DAO instances
@@ -25,6 +44,25 @@ public class CRMGUI extends JFrame {
     private TaskDAO taskDAO;
     private CommunicationDAO communicationDAO;
 
+    // Button actions reach the DAOs through these, so the event thread never waits on the database
+    private AsyncExecutor asyncExecutor;
+    private AsyncDAO<CustomerDAO> customers;
+    private AsyncDAO<AppointmentDAO> appointments;
+    private AsyncDAO<TaskDAO> tasks;
+    private AsyncDAO<CommunicationDAO> communications;
+
+    private SearchService searchService;
+    private TaskDueScheduler taskScheduler;
+    private AppointmentSchedule appointmentSchedule;
+    private JLabel taskDueLabel;
+    private DashboardMetrics dashboardMetrics;
+
+    // Paged table models
+    private PagedTableModel<Customer> customerModel;
+    private PagedTableModel<Appointment> appointmentModel;
+    private PagedTableModel<Task> taskModel;
+    private PagedTableModel<Communication> communicationModel;
+
     public CRMGUI() {
         setTitle("CRM System");
         setSize(1200, 700);
@@ -35,6 +73,19 @@ public class CRMGUI extends JFrame {
         appointmentDAO = new AppointmentDAO();
         taskDAO = new TaskDAO();
         communicationDAO = new CommunicationDAO();
+        asyncExecutor = new AsyncExecutor();
+        customers = new AsyncDAO<>(customerDAO, asyncExecutor);
+        appointments = new AsyncDAO<>(appointmentDAO, asyncExecutor);
+        tasks = new AsyncDAO<>(taskDAO, asyncExecutor);
+        communications = new AsyncDAO<>(communicationDAO, asyncExecutor);
+        startWriteBehind();
+        searchService = new SearchService(customerDAO, communicationDAO);
+        buildSearchIndex();
+        taskScheduler = new TaskDueScheduler(taskDAO, Duration.ofMinutes(DUE_SOON_MINUTES));
+        appointmentSchedule = new AppointmentSchedule(appointmentDAO);
+        loadAppointmentSchedule();
+        dashboardMetrics = new DashboardMetrics(customerDAO, taskDAO, appointmentDAO, communicationDAO);
+        startDashboardMetrics();
 
         tabbedPane = new JTabbedPane();
 
@@ -42,6 +93,8 @@ public class CRMGUI extends JFrame {
         tabbedPane.add("Appointments", createAppointmentPanel());
         tabbedPane.add("Tasks", createTaskPanel());
         tabbedPane.add("Communications", createCommunicationPanel());
+        tabbedPane.add("Dashboard", createDashboardPanel());
+        startTaskScheduler();
 
         add(tabbedPane);
         setVisible(true);
@@ -53,10 +106,12 @@ public class CRMGUI extends JFrame {
     private JPanel createCustomerPanel() {
         JPanel panel = new JPanel(new BorderLayout());
 
-        DefaultTableModel model = new DefaultTableModel(new String[]{
+        JProgressBar progressBar = new JProgressBar();
+        customerModel = new PagedTableModel<>(this, new String[]{
                 "ID", "Full Name", "Phone", "Email", "Category", "Notes", "Created At"
-        }, 0);
-        JTable table = new JTable(model);
+        }, progressBar, customerDAO::count, customerDAO::findPage, customerDAO::skipCursor,
+                this::customerRow, "Error loading customers.");
+        JTable table = new JTable(customerModel);
         JScrollPane scrollPane = new JScrollPane(table);
 
         JPanel formPanel = new JPanel(new GridLayout(7, 2, 5,5));
@@ -81,19 +136,22 @@ public class CRMGUI extends JFrame {
         JButton updateBtn = new JButton("Update");
         JButton deleteBtn = new JButton("Delete");
         JButton refreshBtn = new JButton("Refresh");
+        JButton searchBtn = new JButton("Search Notes");
 
         JPanel buttonPanel = new JPanel();
         buttonPanel.add(addBtn);
         buttonPanel.add(updateBtn);
         buttonPanel.add(deleteBtn);
         buttonPanel.add(refreshBtn);
+        buttonPanel.add(searchBtn);
+        buttonPanel.add(progressBar);
 
         panel.add(scrollPane, BorderLayout.NORTH);
         panel.add(formPanel, BorderLayout.CENTER);
         panel.add(buttonPanel, BorderLayout.SOUTH);
 
         // Load data
-        refreshCustomerTable(model);
+        refreshCustomerTable();
 
         // Button actions
         addBtn.addActionListener(e -> {
@@ -109,70 +167,71 @@ public class CRMGUI extends JFrame {
                 JOptionPane.showMessageDialog(this, String.join("\n", errors), "Validation Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
-            try{
-                customerDAO.addCustomer(c);
-                refreshCustomerTable(model);
-            } catch(SQLException ex){
-                ex.printStackTrace();
-                JOptionPane.showMessageDialog(this, "Error adding customer.", "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            onEdt(customers.run(dao -> dao.addCustomer(c)), done -> refreshCustomerTable(), "Error adding customer.");
         });
 
         updateBtn.addActionListener(e -> {
-            int selectedRow = table.getSelectedRow();
-            if(selectedRow==-1){
-                JOptionPane.showMessageDialog(this, "Select a customer to update.", "Error", JOptionPane.WARNING_MESSAGE);
+            Customer selected = selectedCustomer(table, "update");
+            if(selected==null) return;
+            Customer c = new Customer(
+                    selected.getCustomerId(),
+                    nameField.getText(),
+                    phoneField.getText(),
+                    emailField.getText(),
+                    (Category) categoryBox.getSelectedItem(),
+                    notesArea.getText(),
+                    selected.getCreatedAt()
+            );
+            List<String> errors = c.validation();
+            if(!errors.isEmpty()){
+                JOptionPane.showMessageDialog(this, String.join("\n", errors), "Validation Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
-            UUID id = UUID.fromString((String)table.getValueAt(selectedRow,0));
-            try{
-                Customer c = customerDAO.findById(id);
-                c.setFullName(nameField.getText());
-                c.setPhone(phoneField.getText());
-                c.setEmail(emailField.getText());
-                c.setCategory((Category) categoryBox.getSelectedItem());
-                c.setNotes(notesArea.getText());
-                List<String> errors = c.validation();
-                if(!errors.isEmpty()){
-                    JOptionPane.showMessageDialog(this, String.join("\n", errors), "Validation Error", JOptionPane.ERROR_MESSAGE);
-                    return;
+            onEdt(customers.call(dao -> {
+                if(dao.findById(c.getCustomerId())==null) return false;
+                dao.updateCustomer(c);
+                return true;
+            }), found -> {
+                if(!found){
+                    JOptionPane.showMessageDialog(this, "The customer no longer exists.", "Error", JOptionPane.WARNING_MESSAGE);
                 }
-                customerDAO.updateCustomer(c);
-                refreshCustomerTable(model);
-            } catch(SQLException ex){
-                ex.printStackTrace();
-                JOptionPane.showMessageDialog(this, "Error updating customer.", "Error", JOptionPane.ERROR_MESSAGE);
-            }
+                refreshCustomerTable();
+            }, "Error updating customer.");
         });
 
         deleteBtn.addActionListener(e -> {
-            int selectedRow = table.getSelectedRow();
-            if(selectedRow==-1){
-                JOptionPane.showMessageDialog(this, "Select a customer to delete.", "Error", JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-            UUID id = UUID.fromString((String)table.getValueAt(selectedRow,0));
-            try{
-                customerDAO.deleteCustomer(id);
-                refreshCustomerTable(model);
-            } catch(SQLException ex){
-                ex.printStackTrace();
-                JOptionPane.showMessageDialog(this, "Error deleting customer.", "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            Customer selected = selectedCustomer(table, "delete");
+            if(selected==null) return;
+            onEdt(customers.run(dao -> dao.deleteCustomer(selected.getCustomerId())),
+                    done -> refreshCustomerTable(), "Error deleting customer.");
         });
 
-        refreshBtn.addActionListener(e -> refreshCustomerTable(model));
+        refreshBtn.addActionListener(e -> refreshCustomerTable());
+
+        searchBtn.addActionListener(e -> {
+            String query = askSearchQuery();
+            if(query==null) return;
+            runSearch("Customers", query, () -> {
+                List<String> lines = new ArrayList<>();
+                for(Customer c : searchService.findCustomers(query, SEARCH_LIMIT)){
+                    lines.add(c.getFullName() + " <" + c.getEmail() + "> - " + c.getNotes());
+                }
+                return lines;
+            });
+        });
 
         // Table row selection
         table.addMouseListener(new MouseAdapter() {
             public void mouseClicked(MouseEvent e) {
                 int row = table.getSelectedRow();
-                if(row!=-1){
-                    nameField.setText((String)table.getValueAt(row,1));
-                    phoneField.setText((String)table.getValueAt(row,2));
-                    emailField.setText((String)table.getValueAt(row,3));
-                    categoryBox.setSelectedItem(Category.valueOf((String)table.getValueAt(row,4)));
-                    notesArea.setText((String)table.getValueAt(row,5));
+                // A row whose page is still loading has nothing to show yet
+                Customer c = row==-1 ? null : customerModel.getItem(row);
+                if(c!=null){
+                    nameField.setText(c.getFullName());
+                    phoneField.setText(c.getPhone());
+                    emailField.setText(c.getEmail());
+                    categoryBox.setSelectedItem(c.getCategory());
+                    notesArea.setText(c.getNotes());
                 }
             }
         });
@@ -180,25 +239,34 @@ public class CRMGUI extends JFrame {
         return panel;
     }
 
-    private void refreshCustomerTable(DefaultTableModel model){
-        try{
-            model.setRowCount(0);
-            List<Customer> customers = customerDAO.findAll();
-            for(Customer c: customers){
-                model.addRow(new Object[]{
-                        c.getCustomerId().toString(),
-                        c.getFullName(),
-                        c.getPhone(),
-                        c.getEmail(),
-                        c.getCategory().name(),
-                        c.getNotes(),
-                        c.getFormattedDate()
-                });
-            }
-        } catch(SQLException ex){
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error loading customers.", "Error", JOptionPane.ERROR_MESSAGE);
+    // The selected customer, or null (after telling the user) when nothing usable is selected
+    private Customer selectedCustomer(JTable table, String action){
+        int row = table.getSelectedRow();
+        if(row==-1){
+            JOptionPane.showMessageDialog(this, "Select a customer to " + action + ".", "Error", JOptionPane.WARNING_MESSAGE);
+            return null;
         }
+        Customer c = customerModel.getItem(row);
+        if(c==null){
+            JOptionPane.showMessageDialog(this, "The selected row is still loading.", "Error", JOptionPane.WARNING_MESSAGE);
+        }
+        return c;
+    }
+
+    private void refreshCustomerTable(){
+        customerModel.refresh();
+    }
+
+    private Object[] customerRow(Customer c){
+        return new Object[]{
+                c.getCustomerId().toString(),
+                c.getFullName(),
+                c.getPhone(),
+                c.getEmail(),
+                c.getCategory().name(),
+                c.getNotes(),
+                c.getFormattedDate()
+        };
     }
 
     // ----------------------------
@@ -207,10 +275,12 @@ public class CRMGUI extends JFrame {
     private JPanel createAppointmentPanel() {
         JPanel panel = new JPanel(new BorderLayout());
 
-        DefaultTableModel model = new DefaultTableModel(new String[]{
+        JProgressBar progressBar = new JProgressBar();
+        appointmentModel = new PagedTableModel<>(this, new String[]{
                 "ID","Customer ID","Title","Description","Date","Location","Status","Created At"
-        },0);
-        JTable table = new JTable(model);
+        }, progressBar, appointmentDAO::count, appointmentDAO::findPage, appointmentDAO::skipCursor,
+                this::appointmentRow, "Error loading appointments.");
+        JTable table = new JTable(appointmentModel);
         JScrollPane scrollPane = new JScrollPane(table);
 
         JPanel formPanel = new JPanel(new GridLayout(7,2,5,5));
@@ -244,16 +314,19 @@ public class CRMGUI extends JFrame {
         buttonPanel.add(updateBtn);
         buttonPanel.add(deleteBtn);
         buttonPanel.add(refreshBtn);
+        buttonPanel.add(progressBar);
 
         panel.add(scrollPane, BorderLayout.NORTH);
         panel.add(formPanel, BorderLayout.CENTER);
         panel.add(buttonPanel, BorderLayout.SOUTH);
 
-        refreshAppointmentTable(model);
+        refreshAppointmentTable();
+        refreshBtn.addActionListener(e -> refreshAppointmentTable());
 
         addBtn.addActionListener(e -> {
+            Appointment a;
             try{
-                Appointment a = new Appointment(
+                a = new Appointment(
                         UUID.fromString(customerIdField.getText()),
                         titleField.getText(),
                         descField.getText(),
@@ -261,17 +334,30 @@ public class CRMGUI extends JFrame {
                         locationField.getText(),
                         (AppointmentStatus)statusBox.getSelectedItem()
                 );
-                List<String> errors = a.validation();
-                if(!errors.isEmpty()){
-                    JOptionPane.showMessageDialog(this, String.join("\n", errors), "Validation Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-                appointmentDAO.addAppointment(a);
-                refreshAppointmentTable(model);
-            } catch(Exception ex){
+            } catch(RuntimeException ex){
                 ex.printStackTrace();
                 JOptionPane.showMessageDialog(this,"Error adding appointment.","Error",JOptionPane.ERROR_MESSAGE);
+                return;
             }
+            List<String> errors = a.validation();
+            if(!errors.isEmpty()){
+                JOptionPane.showMessageDialog(this, String.join("\n", errors), "Validation Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            appointments.run(dao -> dao.addAppointment(a)).whenComplete((done, error) -> SwingUtilities.invokeLater(() -> {
+                Throwable cause = error==null ? null : AsyncExecutor.rootCause(error);
+                if(cause instanceof AppointmentConflictException){
+                    if(confirmConflict(a, (AppointmentConflictException) cause)){
+                        onEdt(appointments.run(dao -> dao.addAppointment(a, true)),
+                                booked -> refreshAppointmentTable(), "Error adding appointment.");
+                    }
+                } else if(cause!=null){
+                    cause.printStackTrace();
+                    JOptionPane.showMessageDialog(this,"Error adding appointment.","Error",JOptionPane.ERROR_MESSAGE);
+                } else {
+                    refreshAppointmentTable();
+                }
+            }));
         });
 
         // Update/Delete/Refresh can be implemented similarly as in Customer panel
@@ -280,26 +366,45 @@ public class CRMGUI extends JFrame {
         return panel;
     }
 
-    private void refreshAppointmentTable(DefaultTableModel model){
-        try{
-            model.setRowCount(0);
-            List<Appointment> list = appointmentDAO.findAll();
-            for(Appointment a: list){
-                model.addRow(new Object[]{
-                        a.getAppointmentId().toString(),
-                        a.getCustomerId().toString(),
-                        a.getTitle(),
-                        a.getDescription(),
-                        a.getFormattedAppointmentDate(),
-                        a.getLocation(),
-                        a.getStatus().name(),
-                        a.getFormattedCreatedAt()
-                });
+    private void refreshAppointmentTable(){
+        appointmentModel.refresh();
+    }
+
+    private void loadAppointmentSchedule(){
+        Thread loader = new Thread(() -> {
+            try{
+                appointmentSchedule.load();
+            } catch(SQLException ex){
+                ex.printStackTrace();
             }
-        } catch(SQLException ex){
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this,"Error loading appointments.","Error",JOptionPane.ERROR_MESSAGE);
+        }, "crm-appointment-schedule-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    // Lists the clashes and the next free slot; true books the appointment anyway
+    private boolean confirmConflict(Appointment a, AppointmentConflictException ex){
+        StringBuilder message = new StringBuilder();
+        for(AppointmentConflict conflict : ex.getConflicts()){
+            message.append(conflict).append("\n");
         }
+        LocalDateTime free = appointmentSchedule.nextFreeSlot(a.getCustomerId(), a.getLocation(), a.getAppointmentDate());
+        message.append("\nNext free slot: ").append(free).append("\n\nBook anyway?");
+        return JOptionPane.showConfirmDialog(this, message.toString(), "Appointment Conflict",
+                JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) == JOptionPane.YES_OPTION;
+    }
+
+    private Object[] appointmentRow(Appointment a){
+        return new Object[]{
+                a.getAppointmentId().toString(),
+                a.getCustomerId().toString(),
+                a.getTitle(),
+                a.getDescription(),
+                a.getFormattedAppointmentDate(),
+                a.getLocation(),
+                a.getStatus().name(),
+                a.getFormattedCreatedAt()
+        };
     }
 
     // ----------------------------
@@ -307,10 +412,12 @@ public class CRMGUI extends JFrame {
     // ----------------------------
     private JPanel createTaskPanel(){
         JPanel panel = new JPanel(new BorderLayout());
-        DefaultTableModel model = new DefaultTableModel(new String[]{
+        JProgressBar progressBar = new JProgressBar();
+        taskModel = new PagedTableModel<>(this, new String[]{
                 "ID","Customer ID","Title","Description","Status","Due Date","Created At"
-        },0);
-        JTable table = new JTable(model);
+        }, progressBar, taskDAO::count, taskDAO::findPage, taskDAO::skipCursor,
+                this::taskRow, "Error loading tasks.");
+        JTable table = new JTable(taskModel);
         JScrollPane scrollPane = new JScrollPane(table);
 
         JPanel formPanel = new JPanel(new GridLayout(6,2,5,5));
@@ -335,63 +442,89 @@ public class CRMGUI extends JFrame {
         JButton updateBtn = new JButton("Update");
         JButton deleteBtn = new JButton("Delete");
         JButton refreshBtn = new JButton("Refresh");
+        taskDueLabel = new JLabel();
 
         JPanel buttonPanel = new JPanel();
         buttonPanel.add(addBtn);
         buttonPanel.add(updateBtn);
         buttonPanel.add(deleteBtn);
         buttonPanel.add(refreshBtn);
+        buttonPanel.add(progressBar);
+        buttonPanel.add(taskDueLabel);
 
         panel.add(scrollPane, BorderLayout.NORTH);
         panel.add(formPanel, BorderLayout.CENTER);
         panel.add(buttonPanel, BorderLayout.SOUTH);
 
-        refreshTaskTable(model);
+        refreshTaskTable();
+        refreshBtn.addActionListener(e -> refreshTaskTable());
 
         addBtn.addActionListener(e -> {
+            Task t;
             try{
-                Task t = new Task(
+                t = new Task(
                         UUID.fromString(customerIdField.getText()),
                         titleField.getText(),
                         descField.getText(),
                         (TaskStatus)statusBox.getSelectedItem(),
                         LocalDateTime.parse(dueDateField.getText())
                 );
-                List<String> errors = t.validation();
-                if(!errors.isEmpty()){
-                    JOptionPane.showMessageDialog(this,String.join("\n",errors),"Validation Error",JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-                taskDAO.addTask(t);
-                refreshTaskTable(model);
-            } catch(Exception ex){
+            } catch(RuntimeException ex){
                 ex.printStackTrace();
                 JOptionPane.showMessageDialog(this,"Error adding task.","Error",JOptionPane.ERROR_MESSAGE);
+                return;
             }
+            List<String> errors = t.validation();
+            if(!errors.isEmpty()){
+                JOptionPane.showMessageDialog(this,String.join("\n",errors),"Validation Error",JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            onEdt(tasks.run(dao -> dao.addTask(t)), done -> refreshTaskTable(), "Error adding task.");
         });
 
         return panel;
     }
 
-    private void refreshTaskTable(DefaultTableModel model){
-        try{
-            model.setRowCount(0);
-            List<Task> tasks = taskDAO.findAll();
-            for(Task t: tasks){
-                model.addRow(new Object[]{
-                        t.getTaskId().toString(),
-                        t.getCustomerId().toString(),
-                        t.getTitle(),
-                        t.getDescription(),
-                        t.getStatus().name(),
-                        t.getFormattedDueDate(),
-                        t.getFormattedCreatedAt()
-                });
+    private void refreshTaskTable(){
+        taskModel.refresh();
+        updateTaskDueLabel();
+    }
+
+    private void startTaskScheduler(){
+        taskScheduler.addListener(new TaskDueScheduler.Listener() {
+            @Override
+            public void dueSoon(Task task) { SwingUtilities.invokeLater(CRMGUI.this::updateTaskDueLabel); }
+
+            @Override
+            public void overdue(Task task) { SwingUtilities.invokeLater(CRMGUI.this::updateTaskDueLabel); }
+        });
+        Thread loader = new Thread(() -> {
+            try{
+                taskScheduler.start();
+                SwingUtilities.invokeLater(this::updateTaskDueLabel);
+            } catch(SQLException ex){
+                ex.printStackTrace();
             }
-        } catch(SQLException ex){
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this,"Error loading tasks.","Error",JOptionPane.ERROR_MESSAGE);
-        }
+        }, "crm-task-scheduler-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void updateTaskDueLabel(){
+        taskDueLabel.setText("Overdue: " + taskScheduler.getOverdue().size() +
+                " | Due soon: " + taskScheduler.getDueSoon().size());
+    }
+
+    private Object[] taskRow(Task t){
+        return new Object[]{
+                t.getTaskId().toString(),
+                t.getCustomerId().toString(),
+                t.getTitle(),
+                t.getDescription(),
+                t.getStatus().name(),
+                t.getFormattedDueDate(),
+                t.getFormattedCreatedAt()
+        };
     }
 
     // ----------------------------
@@ -399,17 +532,30 @@ public class CRMGUI extends JFrame {
     // ----------------------------
     private JPanel createCommunicationPanel(){
         JPanel panel = new JPanel(new BorderLayout());
-        DefaultTableModel model = new DefaultTableModel(new String[]{
+        JProgressBar progressBar = new JProgressBar();
+        communicationModel = new PagedTableModel<>(this, new String[]{
                 "ID","Customer ID","Type","Subject","Message","Created At"
-        },0);
-        JTable table = new JTable(model);
+        }, progressBar, communicationDAO::count, communicationDAO::findPage, communicationDAO::skipCursor,
+                this::communicationRow, "Error loading communications.");
+        JTable table = new JTable(communicationModel);
         JScrollPane scrollPane = new JScrollPane(table);
 
-        JPanel formPanel = new JPanel(new GridLayout(5,2,5,5));
+        JPanel formPanel = new JPanel(new GridLayout(8,2,5,5));
         JTextField customerIdField = new JTextField();
         JComboBox<CommunicationType> typeBox = new JComboBox<>(CommunicationType.values());
         JTextField subjectField = new JTextField();
         JTextField messageField = new JTextField();
+        // Calls
+        JTextField durationField = new JTextField();
+        DefaultComboBoxModel<CallOutcome> outcomeModel = new DefaultComboBoxModel<>();
+        outcomeModel.addElement(null);
+        for(CallOutcome outcome : CallOutcome.values()){
+            outcomeModel.addElement(outcome);
+        }
+        JComboBox<CallOutcome> outcomeBox = new JComboBox<>(outcomeModel);
+        // Emails
+        JTextField recipientField = new JTextField();
+        JTextField attachmentField = new JTextField();
 
         formPanel.add(new JLabel("Customer ID:"));
         formPanel.add(customerIdField);
@@ -419,61 +565,229 @@ public class CRMGUI extends JFrame {
         formPanel.add(subjectField);
         formPanel.add(new JLabel("Message:"));
         formPanel.add(messageField);
+        formPanel.add(new JLabel("Call Duration (sec):"));
+        formPanel.add(durationField);
+        formPanel.add(new JLabel("Call Outcome:"));
+        formPanel.add(outcomeBox);
+        formPanel.add(new JLabel("Recipient Email:"));
+        formPanel.add(recipientField);
+        formPanel.add(new JLabel("Attachment:"));
+        formPanel.add(attachmentField);
+
+        ItemListener typeFields = e -> {
+            CommunicationType type = (CommunicationType)typeBox.getSelectedItem();
+            durationField.setEnabled(type==CommunicationType.CALL);
+            outcomeBox.setEnabled(type==CommunicationType.CALL);
+            recipientField.setEnabled(type==CommunicationType.EMAIL);
+            attachmentField.setEnabled(type==CommunicationType.EMAIL);
+        };
+        typeBox.addItemListener(typeFields);
+        typeFields.itemStateChanged(null);
 
         JButton addBtn = new JButton("Add");
         JButton refreshBtn = new JButton("Refresh");
+        JButton searchBtn = new JButton("Search");
         JPanel buttonPanel = new JPanel();
         buttonPanel.add(addBtn);
         buttonPanel.add(refreshBtn);
+        buttonPanel.add(searchBtn);
+        buttonPanel.add(progressBar);
 
         panel.add(scrollPane, BorderLayout.NORTH);
         panel.add(formPanel, BorderLayout.CENTER);
         panel.add(buttonPanel, BorderLayout.SOUTH);
 
-        refreshCommunicationTable(model);
+        refreshCommunicationTable();
+        refreshBtn.addActionListener(e -> refreshCommunicationTable());
+
+        searchBtn.addActionListener(e -> {
+            String query = askSearchQuery();
+            if(query==null) return;
+            runSearch("Communications", query, () -> {
+                List<String> lines = new ArrayList<>();
+                for(Communication c : searchService.findCommunications(query, SEARCH_LIMIT)){
+                    lines.add(c.getFormattedCreatedAt() + " [" + c.getType() + "] " + c.getSubject() + " - " + c.getMessage());
+                }
+                return lines;
+            });
+        });
 
         addBtn.addActionListener(e -> {
+            Communication c;
             try{
-                Communication c = new Communication(
-                        UUID.fromString(customerIdField.getText()),
-                        subjectField.getText(),
-                        messageField.getText(),
-                        (CommunicationType)typeBox.getSelectedItem()
-                ){};
-                List<String> errors = c.validation();
-                if(!errors.isEmpty()){
-                    JOptionPane.showMessageDialog(this,String.join("\n",errors),"Validation Error",JOptionPane.ERROR_MESSAGE);
-                    return;
+                UUID customerId = UUID.fromString(customerIdField.getText());
+                CommunicationType type = (CommunicationType)typeBox.getSelectedItem();
+                if(type==CommunicationType.CALL){
+                    Integer duration = null;
+                    if(!durationField.getText().isBlank()){
+                        duration = Integer.valueOf(durationField.getText().trim());
+                        if(duration<0){
+                            JOptionPane.showMessageDialog(this,"Call duration cannot be negative.","Validation Error",JOptionPane.ERROR_MESSAGE);
+                            return;
+                        }
+                    }
+                    c = new CallCommunication(customerId, subjectField.getText(), messageField.getText(),
+                            duration, (CallOutcome)outcomeBox.getSelectedItem());
+                } else if(type==CommunicationType.EMAIL){
+                    c = new EmailCommunication(customerId, subjectField.getText(), messageField.getText(),
+                            blankToNull(recipientField.getText()), blankToNull(attachmentField.getText()));
+                } else {
+                    c = new Communication(customerId, subjectField.getText(), messageField.getText(), type){};
                 }
-                communicationDAO.addCommunication(c);
-                refreshCommunicationTable(model);
-            } catch(Exception ex){
+            } catch(RuntimeException ex){
                 ex.printStackTrace();
                 JOptionPane.showMessageDialog(this,"Error adding communication.","Error",JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            List<String> errors = c.validation();
+            if(!errors.isEmpty()){
+                JOptionPane.showMessageDialog(this,String.join("\n",errors),"Validation Error",JOptionPane.ERROR_MESSAGE);
+                return;
             }
+            onEdt(communications.run(dao -> dao.addCommunication(c)), done -> refreshCommunicationTable(),
+                    "Error adding communication.");
         });
 
         return panel;
     }
 
-    private void refreshCommunicationTable(DefaultTableModel model){
+    private static String blankToNull(String text){
+        return text==null || text.isBlank() ? null : text.trim();
+    }
+
+    private void refreshCommunicationTable(){
+        communicationModel.refresh();
+    }
+
+    private Object[] communicationRow(Communication c){
+        return new Object[]{
+                c.getCommunicationId().toString(),
+                c.getCustomerId().toString(),
+                c.getType().name(),
+                c.getSubject(),
+                c.getMessage(),
+                c.getFormattedCreatedAt()
+        };
+    }
+
+    // ----------------------------
+    // Dashboard Panel
+    // ----------------------------
+    private JPanel createDashboardPanel(){
+        JPanel panel = new JPanel(new GridLayout(0, 1, 5, 5));
+        JLabel customersLabel = new JLabel();
+        JLabel tasksLabel = new JLabel();
+        JLabel appointmentsLabel = new JLabel();
+        JLabel communicationsLabel = new JLabel();
+        JLabel callsLabel = new JLabel();
+
+        panel.add(customersLabel);
+        panel.add(tasksLabel);
+        panel.add(appointmentsLabel);
+        panel.add(communicationsLabel);
+        panel.add(callsLabel);
+
+        Timer timer = new Timer(DASHBOARD_REFRESH_MS, e -> {
+            customersLabel.setText("Customers: " + dashboardMetrics.getCustomersByCategory());
+            tasksLabel.setText("Tasks: " + dashboardMetrics.getTasksByStatus());
+            appointmentsLabel.setText("Appointments: " + dashboardMetrics.getAppointmentsByStatus());
+            communicationsLabel.setText("Communications: " + dashboardMetrics.getCommunicationsByType());
+            callsLabel.setText("Calls: " + dashboardMetrics.getCallsByOutcome());
+        });
+        timer.setInitialDelay(0);
+        timer.start();
+
+        JPanel wrapper = new JPanel(new BorderLayout());
+        wrapper.add(panel, BorderLayout.NORTH);
+        return wrapper;
+    }
+
+    private void startWriteBehind(){
+        if(WRITE_BEHIND_DIR==null) return;
         try{
-            model.setRowCount(0);
-            List<Communication> list = communicationDAO.findAll();
-            for(Communication c: list){
-                model.addRow(new Object[]{
-                        c.getCommunicationId().toString(),
-                        c.getCustomerId().toString(),
-                        c.getType().name(),
-                        c.getSubject(),
-                        c.getMessage(),
-                        c.getFormattedCreatedAt()
-                });
-            }
-        } catch(SQLException ex){
+            new CommunicationWriteBehind(communicationDAO, Path.of(WRITE_BEHIND_DIR));
+        } catch(IOException ex){
             ex.printStackTrace();
-            JOptionPane.showMessageDialog(this,"Error loading communications.","Error",JOptionPane.ERROR_MESSAGE);
+            JOptionPane.showMessageDialog(this,"Could not open the communication log; communications are written directly.",
+                    "Warning",JOptionPane.WARNING_MESSAGE);
+        }
+    }
+
+    private void startDashboardMetrics(){
+        Thread loader = new Thread(() -> {
+            try{
+                dashboardMetrics.start();
+            } catch(SQLException ex){
+                ex.printStackTrace();
+            }
+        }, "crm-metrics-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void buildSearchIndex(){
+        Thread builder = new Thread(() -> {
+            try{
+                searchService.build();
+            } catch(SQLException ex){
+                ex.printStackTrace();
+            }
+        }, "crm-search-index");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    private String askSearchQuery(){
+        String hint = searchService.isReady() ? "" : "\n(The index is still loading; results may be incomplete.)";
+        String query = JOptionPane.showInputDialog(this,
+                "Words to find (all must match, end a word with * to match its prefix):" + hint,
+                "Search", JOptionPane.QUESTION_MESSAGE);
+        return query==null || query.isBlank() ? null : query;
+    }
+
+    // Fetches the matches off the EDT and shows them once they arrive
+    // Hands the outcome of an AsyncDAO call back to the event thread: the result, or the error message
+    private <T> void onEdt(CompletableFuture<T> call, Consumer<T> onSuccess, String errorMessage){
+        call.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if(error!=null){
+                AsyncExecutor.rootCause(error).printStackTrace();
+                JOptionPane.showMessageDialog(this, errorMessage, "Error", JOptionPane.ERROR_MESSAGE);
+            } else {
+                onSuccess.accept(result);
+            }
+        }));
+    }
+
+    private void runSearch(String what, String query, SqlCall<List<String>> search){
+        new SwingWorker<List<String>, Void>(){
+            @Override
+            protected List<String> doInBackground() throws SQLException {
+                return search.call();
+            }
+
+            @Override
+            protected void done(){
+                try{
+                    showSearchResults(what, query, get());
+                } catch(InterruptedException ex){
+                    Thread.currentThread().interrupt();
+                } catch(ExecutionException ex){
+                    ex.getCause().printStackTrace();
+                    JOptionPane.showMessageDialog(CRMGUI.this, "Error searching " + what.toLowerCase() + ".", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private void showSearchResults(String what, String query, List<String> lines){
+        if(lines.isEmpty()){
+            JOptionPane.showMessageDialog(this, "No matches for \"" + query + "\".", what, JOptionPane.INFORMATION_MESSAGE);
+            return;
         }
+        JList<String> list = new JList<>(lines.toArray(new String[0]));
+        JScrollPane scrollPane = new JScrollPane(list);
+        scrollPane.setPreferredSize(new Dimension(700, 300));
+        JOptionPane.showMessageDialog(this, scrollPane, what + " matching \"" + query + "\"", JOptionPane.PLAIN_MESSAGE);
     }
 
 }
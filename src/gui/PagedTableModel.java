@@ -0,0 +1,261 @@
+package gui;
+
+import dbhelper.Page;
+import dbhelper.SqlCall;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+// Virtual table model: it only knows the total row count and keeps a small LRU window of
+// fixed-size pages, fetched from the DAO as the viewport asks for rows. Memory stays the same
+// whether the table has a hundred rows or millions.
+//
+// Pages are located by keyset cursor. Cursors of pages already seen are remembered; a jump to an
+// unseen page walks forward from the nearest known one over the (created_at, id) index only.
+// Visible pages load first, the next page is prefetched, and refresh() discards anything still in flight.
+public class PagedTableModel<T> extends AbstractTableModel {
+
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 10;
+    // Marks page 0 in the cursor map, whose cursor is "start of table"
+    private static final String START = "";
+
+    @FunctionalInterface
+    public interface PageFetcher<T> {
+        Page<T> fetch(int pageSize, String cursor) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface CursorSkipper {
+        String skip(String cursor, long rows) throws SQLException;
+    }
+
+    private final Component parent;
+    private final String[] columns;
+    private final JProgressBar progress;
+    private final SqlCall<Long> counter;
+    private final PageFetcher<T> fetcher;
+    private final CursorSkipper skipper;
+    private final Function<T, Object[]> toRow;
+    private final String errorMessage;
+
+    // Single loader thread: requests run in order and never compete for connections with each other
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "crm-table-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // EDT-confined state
+    private LoadState state = new LoadState();
+    private int rowCount;
+    private final LinkedHashMap<Integer, List<Row<T>>> pages = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<Integer> pending = new HashSet<>();
+    private volatile int lastRequestedPage;
+
+    public PagedTableModel(Component parent, String[] columns, JProgressBar progress,
+                           SqlCall<Long> counter, PageFetcher<T> fetcher, CursorSkipper skipper,
+                           Function<T, Object[]> toRow, String errorMessage) {
+        this.parent = parent;
+        this.columns = columns;
+        this.progress = progress;
+        this.counter = counter;
+        this.fetcher = fetcher;
+        this.skipper = skipper;
+        this.toRow = toRow;
+        this.errorMessage = errorMessage;
+        progress.setStringPainted(true);
+        progress.setVisible(false);
+    }
+
+    // ----------------------------
+    // TABLE MODEL
+    // ----------------------------
+    @Override
+    public int getRowCount() { return rowCount; }
+
+    @Override
+    public int getColumnCount() { return columns.length; }
+
+    @Override
+    public String getColumnName(int column) { return columns[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int pageNo = row / PAGE_SIZE;
+        List<Row<T>> page = pages.get(pageNo);
+        if (page == null) {
+            request(pageNo);
+            return null;
+        }
+        // Stay one page ahead of the scroll direction
+        if ((pageNo + 1) * PAGE_SIZE < rowCount && !pages.containsKey(pageNo + 1)) {
+            request(pageNo + 1);
+        }
+        int index = row % PAGE_SIZE;
+        return index < page.size() ? page.get(index).cells[column] : null;
+    }
+
+    // The entity shown in the row, or null while its page is still loading
+    public T getItem(int row) {
+        List<Row<T>> page = pages.get(row / PAGE_SIZE);
+        int index = row % PAGE_SIZE;
+        return page == null || index >= page.size() ? null : page.get(index).item;
+    }
+
+    // ----------------------------
+    // LOADING
+    // ----------------------------
+    // Must be called on the EDT
+    public void refresh() {
+        LoadState current = new LoadState();
+        state = current;
+        pages.clear();
+        pending.clear();
+        rowCount = 0;
+        fireTableDataChanged();
+        showProgress(true);
+
+        loader.submit(() -> {
+            try {
+                long total = counter.call();
+                SwingUtilities.invokeLater(() -> {
+                    if (state != current) {
+                        return;
+                    }
+                    rowCount = (int) Math.min(total, Integer.MAX_VALUE);
+                    fireTableDataChanged();
+                    showProgress(!pending.isEmpty());
+                });
+            } catch (SQLException ex) {
+                fail(current, ex);
+            }
+        });
+    }
+
+    private void request(int pageNo) {
+        lastRequestedPage = pageNo;
+        if (pages.containsKey(pageNo) || !pending.add(pageNo)) {
+            return;
+        }
+        showProgress(true);
+        LoadState current = state;
+        loader.submit(() -> load(current, pageNo));
+    }
+
+    // Runs on the loader thread
+    private void load(LoadState current, int pageNo) {
+        List<Row<T>> rows = null;
+        boolean failed = false;
+        try {
+            // Skip pages the user has already scrolled far away from
+            if (state == current && Math.abs(pageNo - lastRequestedPage) <= MAX_CACHED_PAGES) {
+                rows = fetchPage(current, pageNo);
+            }
+        } catch (SQLException ex) {
+            failed = true;
+            fail(current, ex);
+        }
+
+        List<Row<T>> loaded = rows;
+        boolean retry = !failed;
+        SwingUtilities.invokeLater(() -> {
+            if (state != current) {
+                return;
+            }
+            // A failed page stays pending so repaints do not hammer the database; refresh() retries it
+            if (retry) {
+                pending.remove(pageNo);
+            }
+            if (loaded != null) {
+                pages.put(pageNo, loaded);
+                evictOldPages();
+                int first = pageNo * PAGE_SIZE;
+                int last = Math.min(first + PAGE_SIZE, rowCount) - 1;
+                if (last >= first) {
+                    fireTableRowsUpdated(first, last);
+                }
+            }
+            showProgress(retry && !pending.isEmpty());
+        });
+    }
+
+    private List<Row<T>> fetchPage(LoadState current, int pageNo) throws SQLException {
+        Map.Entry<Integer, String> known = current.cursors.floorEntry(pageNo);
+        String cursor = known.getValue().equals(START) ? null : known.getValue();
+        if (known.getKey() < pageNo) {
+            cursor = skipper.skip(cursor, (long) (pageNo - known.getKey()) * PAGE_SIZE);
+            if (cursor == null) {
+                // Rows were deleted since the count; nothing left at this position
+                return new ArrayList<>();
+            }
+            current.cursors.put(pageNo, cursor);
+        }
+
+        Page<T> page = fetcher.fetch(PAGE_SIZE, cursor);
+        if (page.hasNext()) {
+            current.cursors.put(pageNo + 1, page.getNextCursor());
+        }
+        List<Row<T>> rows = new ArrayList<>(page.size());
+        for (T item : page.getItems()) {
+            rows.add(new Row<>(item, toRow.apply(item)));
+        }
+        return rows;
+    }
+
+    private void evictOldPages() {
+        Iterator<Integer> it = pages.keySet().iterator();
+        while (pages.size() > MAX_CACHED_PAGES && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private void showProgress(boolean loading) {
+        progress.setIndeterminate(loading);
+        progress.setString(loading ? "Loading..." : rowCount + " rows");
+        progress.setVisible(true);
+    }
+
+    private void fail(LoadState current, SQLException ex) {
+        SwingUtilities.invokeLater(() -> {
+            if (state != current || current.failed) {
+                return;
+            }
+            // One dialog per refresh, not one per page
+            current.failed = true;
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(parent, errorMessage, "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    // Everything tied to one refresh; a new refresh makes late results from the old one harmless
+    private static class LoadState {
+        // Page number -> cursor of the row before it; only touched by the loader thread
+        private final TreeMap<Integer, String> cursors = new TreeMap<>(Map.of(0, START));
+        private boolean failed;
+    }
+
+    private static class Row<T> {
+        private final T item;
+        private final Object[] cells;
+
+        Row(T item, Object[] cells) {
+            this.item = item;
+            this.cells = cells;
+        }
+    }
+}
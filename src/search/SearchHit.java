@@ -0,0 +1,21 @@
+import java.util.UUID;
+
+// One search result: the id of the matching row and its relevance score (higher is better)
+public class SearchHit {
+
+    private final UUID id;
+    private final double score;
+
+    public SearchHit(UUID id, double score) {
+        this.id = id;
+        this.score = score;
+    }
+
+    public UUID getId() { return id; }
+    public double getScore() { return score; }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%.3f)", id, score);
+    }
+}
@@ -0,0 +1,138 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// Full-text search over customers.notes and communications.title/description without LIKE '%x%' scans.
+// build() streams both tables into in-memory TextIndexes; after that the DAO change listeners keep them
+// current, so searches never touch the database.
+public class SearchService {
+
+    private final CustomerDAO customerDAO;
+    private final CommunicationDAO communicationDAO;
+
+    private final TextIndex customerNotes = new TextIndex();
+    private final TextIndex communications = new TextIndex();
+
+    private final Object buildLock = new Object();
+    // Ids written through the DAOs while a build is running; the build must not overwrite them
+    // with the older version it may have just streamed. Null when no build is running.
+    private Set<UUID> touched;
+    private volatile boolean ready;
+
+    public SearchService(CustomerDAO customerDAO, CommunicationDAO communicationDAO) {
+        this.customerDAO = customerDAO;
+        this.communicationDAO = communicationDAO;
+
+        customerDAO.addChangeListener(new ChangeListener<>() {
+            @Override
+            public void inserted(Customer c) { apply(customerNotes, c.getCustomerId(), c.getNotes()); }
+
+            @Override
+            public void updated(Customer c) { apply(customerNotes, c.getCustomerId(), c.getNotes()); }
+
+            @Override
+            public void deleted(UUID id) { apply(customerNotes, id, (String[]) null); }
+        });
+        communicationDAO.addChangeListener(new ChangeListener<>() {
+            @Override
+            public void inserted(Communication c) {
+                apply(communications, c.getCommunicationId(), c.getSubject(), c.getMessage());
+            }
+
+            @Override
+            public void updated(Communication c) {
+                apply(communications, c.getCommunicationId(), c.getSubject(), c.getMessage());
+            }
+
+            @Override
+            public void deleted(UUID id) { apply(communications, id, (String[]) null); }
+        });
+    }
+
+    // ----------------------------
+    // BUILD
+    // ----------------------------
+    // Loads both indexes from the database; searches return partial results until it finishes
+    public void build() throws SQLException {
+        synchronized (buildLock) {
+            touched = new HashSet<>();
+            customerNotes.clear();
+            communications.clear();
+        }
+        ready = false;
+        try {
+            try (Stream<Customer> rows = customerDAO.streamAll()) {
+                rows.forEach(c -> load(customerNotes, c.getCustomerId(), c.getNotes()));
+            }
+            try (Stream<Communication> rows = communicationDAO.streamAll()) {
+                rows.forEach(c -> load(communications, c.getCommunicationId(), c.getSubject(), c.getMessage()));
+            }
+        } catch (UncheckedSQLException ex) {
+            throw ex.getCause();
+        } finally {
+            synchronized (buildLock) {
+                touched = null;
+            }
+        }
+        ready = true;
+    }
+
+    public boolean isReady() { return ready; }
+
+    // ----------------------------
+    // SEARCH
+    // ----------------------------
+    public List<SearchHit> searchCustomers(String query, int limit) {
+        return customerNotes.search(query, limit);
+    }
+
+    public List<SearchHit> searchCommunications(String query, int limit) {
+        return communications.search(query, limit);
+    }
+
+    // The matching rows, best first, fetched with one IN-list query
+    public List<Customer> findCustomers(String query, int limit) throws SQLException {
+        return customerDAO.findByIds(idsOf(searchCustomers(query, limit)));
+    }
+
+    public List<Communication> findCommunications(String query, int limit) throws SQLException {
+        return communicationDAO.findByIds(idsOf(searchCommunications(query, limit)));
+    }
+
+    private static List<UUID> idsOf(List<SearchHit> hits) {
+        List<UUID> ids = new ArrayList<>(hits.size());
+        for (SearchHit hit : hits) {
+            ids.add(hit.getId());
+        }
+        return ids;
+    }
+
+    // ----------------------------
+    // HELPER METHODS
+    // ----------------------------
+    // Null fields mean the row is gone
+    private void apply(TextIndex index, UUID id, String... fields) {
+        synchronized (buildLock) {
+            if (touched != null) {
+                touched.add(id);
+            }
+            if (fields == null) {
+                index.remove(id);
+            } else {
+                index.put(id, fields);
+            }
+        }
+    }
+
+    private void load(TextIndex index, UUID id, String... fields) {
+        synchronized (buildLock) {
+            if (touched == null || !touched.contains(id)) {
+                index.put(id, fields);
+            }
+        }
+    }
+}
@@ -0,0 +1,433 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// In-memory inverted index from words to the documents that contain them.
+// Each document (a UUID with some text fields) gets a dense int number; posting lists are sorted
+// int arrays with a parallel array of term frequencies, so a million documents cost a few bytes
+// per word occurrence instead of an object each. Results are ranked with BM25.
+//
+// Query syntax: words separated by spaces, all of which must match (AND); a trailing '*' makes a
+// word a prefix ("inv*" matches "invoice" and "inventory"). Accents and case are ignored.
+public class TextIndex {
+
+    // BM25 parameters: term frequency saturation and document length normalisation
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MIN_WORD_LENGTH = 2;
+    private static final int MAX_WORD_LENGTH = 64;
+    // Above this many matching words a prefix union goes through a dense score array instead of a heap merge
+    private static final int DENSE_UNION_TERMS = 16;
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Sorted, so a prefix query is a range of the map
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<UUID, Integer> docNumbers = new HashMap<>();
+    // Indexed by document number; a removed document leaves a null slot that is not reused,
+    // which keeps new documents at the end of every posting list
+    private UUID[] keys = new UUID[1024];
+    // The posting lists each document is on, to unlink it again without looking its words up
+    private Postings[][] docTerms = new Postings[1024][];
+    private int[] docLengths = new int[1024];
+    private int nextDoc;
+    private long totalLength;
+
+    // ----------------------------
+    // WRITE
+    // ----------------------------
+    // Adds or replaces the document; null fields are skipped
+    public void put(UUID key, String... fields) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        int length = 0;
+        for (String field : fields) {
+            for (String word : tokenize(field)) {
+                counts.merge(word, 1, Integer::sum);
+                length++;
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            Integer existing = docNumbers.get(key);
+            if (counts.isEmpty()) {
+                if (existing != null) {
+                    removeDoc(key, existing);
+                }
+                return;
+            }
+
+            int doc;
+            if (existing != null) {
+                doc = existing;
+                unlinkTerms(doc);
+            } else {
+                doc = allocate(key);
+            }
+            Postings[] onLists = new Postings[counts.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                Postings postings = terms.computeIfAbsent(entry.getKey(), Postings::new);
+                postings.put(doc, entry.getValue());
+                onLists[i++] = postings;
+            }
+            docTerms[doc] = onLists;
+            docLengths[doc] = length;
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID key) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docNumbers.get(key);
+            if (doc != null) {
+                removeDoc(key, doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            docNumbers.clear();
+            keys = new UUID[1024];
+            docTerms = new Postings[1024][];
+            docLengths = new int[1024];
+            nextDoc = 0;
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ----------------------------
+    // READ
+    // ----------------------------
+    // Best matches first; an empty query, or one with no usable words, matches nothing
+    public List<SearchHit> search(String query, int limit) {
+        if (query == null || limit < 1) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Scored> lists = new ArrayList<>();
+            for (String part : query.trim().split("\\s+")) {
+                boolean prefix = part.endsWith("*");
+                List<String> words = tokenize(prefix ? part.substring(0, part.length() - 1) : part);
+                for (int i = 0; i < words.size(); i++) {
+                    // Only the last word of "foo-ba*" is a prefix
+                    Scored scored = prefix && i == words.size() - 1 ? scorePrefix(words.get(i)) : score(words.get(i));
+                    if (scored.size == 0) {
+                        return Collections.emptyList();
+                    }
+                    lists.add(scored);
+                }
+            }
+            if (lists.isEmpty()) {
+                return Collections.emptyList();
+            }
+            return top(intersect(lists), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docNumbers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Lowercase letter/digit runs with accents stripped, so "Τιμολόγιο" and "τιμολογιο" match
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return words;
+        }
+        String folded = isAscii(text) ? text.toLowerCase(Locale.ROOT)
+                : COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                        .toLowerCase(Locale.ROOT);
+
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < folded.length(); ) {
+            int cp = folded.codePointAt(i);
+            i += Character.charCount(cp);
+            if (Character.isLetterOrDigit(cp)) {
+                word.appendCodePoint(cp);
+            } else {
+                addWord(words, word);
+            }
+        }
+        addWord(words, word);
+        return words;
+    }
+
+    // ----------------------------
+    // HELPER METHODS
+    // ----------------------------
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void addWord(List<String> words, StringBuilder word) {
+        if (word.length() >= MIN_WORD_LENGTH) {
+            words.add(word.length() > MAX_WORD_LENGTH ? word.substring(0, MAX_WORD_LENGTH) : word.toString());
+        }
+        word.setLength(0);
+    }
+
+    private int allocate(UUID key) {
+        if (nextDoc == keys.length) {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            docTerms = Arrays.copyOf(docTerms, capacity);
+            docLengths = Arrays.copyOf(docLengths, capacity);
+        }
+        int doc = nextDoc++;
+        keys[doc] = key;
+        docNumbers.put(key, doc);
+        return doc;
+    }
+
+    private void removeDoc(UUID key, int doc) {
+        unlinkTerms(doc);
+        docNumbers.remove(key);
+        keys[doc] = null;
+        docTerms[doc] = null;
+    }
+
+    private void unlinkTerms(int doc) {
+        for (Postings postings : docTerms[doc]) {
+            postings.remove(doc);
+            if (postings.size == 0) {
+                terms.remove(postings.term);
+            }
+        }
+        totalLength -= docLengths[doc];
+        docLengths[doc] = 0;
+    }
+
+    private Scored score(String term) {
+        Postings postings = terms.get(term);
+        if (postings == null) {
+            return new Scored(0);
+        }
+        double idf = idf(postings.size);
+        double avgLength = (double) totalLength / docNumbers.size();
+        Scored scored = new Scored(postings.size);
+        for (int i = 0; i < postings.size; i++) {
+            int doc = postings.docs[i];
+            double tf = postings.freqs[i];
+            double norm = K1 * (1 - B + B * docLengths[doc] / avgLength);
+            scored.add(doc, idf * tf * (K1 + 1) / (tf + norm));
+        }
+        return scored;
+    }
+
+    // Union of every term starting with the prefix, in document order
+    private Scored scorePrefix(String prefix) {
+        List<Scored> matches = new ArrayList<>();
+        int total = 0;
+        for (String term : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).keySet()) {
+            Scored scored = score(term);
+            matches.add(scored);
+            total += scored.size;
+        }
+        if (matches.size() == 1) {
+            return matches.get(0);
+        }
+        if (matches.size() > DENSE_UNION_TERMS) {
+            return denseUnion(matches);
+        }
+
+        PriorityQueue<int[]> heads = new PriorityQueue<>((a, b) -> Integer.compare(
+                matches.get(a[0]).docs[a[1]], matches.get(b[0]).docs[b[1]]));
+        for (int m = 0; m < matches.size(); m++) {
+            heads.add(new int[]{m, 0});
+        }
+        Scored union = new Scored(total);
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            Scored list = matches.get(head[0]);
+            int doc = list.docs[head[1]];
+            double score = list.scores[head[1]];
+            if (union.size > 0 && union.docs[union.size - 1] == doc) {
+                union.scores[union.size - 1] = Math.max(union.scores[union.size - 1], score);
+            } else {
+                union.add(doc, score);
+            }
+            if (++head[1] < list.size) {
+                heads.add(head);
+            }
+        }
+        return union;
+    }
+
+    // A document containing several matching words ranks by its best one
+    private Scored denseUnion(List<Scored> matches) {
+        double[] best = new double[nextDoc];
+        BitSet seen = new BitSet(nextDoc);
+        for (Scored list : matches) {
+            for (int i = 0; i < list.size; i++) {
+                int doc = list.docs[i];
+                best[doc] = Math.max(best[doc], list.scores[i]);
+                seen.set(doc);
+            }
+        }
+        Scored union = new Scored(seen.cardinality());
+        for (int doc = seen.nextSetBit(0); doc >= 0; doc = seen.nextSetBit(doc + 1)) {
+            union.add(doc, best[doc]);
+        }
+        return union;
+    }
+
+    // Walks the shortest list and binary-searches the others, each from where it last matched
+    private static Scored intersect(List<Scored> lists) {
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        Scored shortest = lists.get(0);
+        int[] positions = new int[lists.size()];
+        Scored result = new Scored(shortest.size);
+
+        candidates:
+        for (int i = 0; i < shortest.size; i++) {
+            int doc = shortest.docs[i];
+            double score = shortest.scores[i];
+            for (int l = 1; l < lists.size(); l++) {
+                Scored other = lists.get(l);
+                int pos = Arrays.binarySearch(other.docs, positions[l], other.size, doc);
+                if (pos < 0) {
+                    positions[l] = -pos - 1;
+                    if (positions[l] == other.size) {
+                        break candidates;
+                    }
+                    continue candidates;
+                }
+                positions[l] = pos + 1;
+                score += other.scores[pos];
+            }
+            result.add(doc, score);
+        }
+        return result;
+    }
+
+    private List<SearchHit> top(Scored matches, int limit) {
+        // Min-heap of the best "limit" documents; equal scores favour the newer document
+        PriorityQueue<Integer> best = new PriorityQueue<>((a, b) -> {
+            int c = Double.compare(matches.scores[a], matches.scores[b]);
+            return c != 0 ? c : Integer.compare(matches.docs[a], matches.docs[b]);
+        });
+        for (int i = 0; i < matches.size; i++) {
+            best.add(i);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<SearchHit> hits = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            int i = best.poll();
+            hits.add(new SearchHit(keys[matches.docs[i]], matches.scores[i]));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    private double idf(int docFrequency) {
+        int docs = docNumbers.size();
+        return Math.log(1 + (docs - docFrequency + 0.5) / (docFrequency + 0.5));
+    }
+
+    // Documents containing one word, in document order, with how often the word occurs in each
+    private static class Postings {
+        private final String term;
+        private int[] docs = new int[4];
+        private int[] freqs = new int[4];
+        private int size;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        void put(int doc, int freq) {
+            int pos = size > 0 && docs[size - 1] < doc ? -size - 1 : Arrays.binarySearch(docs, 0, size, doc);
+            if (pos >= 0) {
+                freqs[pos] = freq;
+                return;
+            }
+            pos = -pos - 1;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            System.arraycopy(docs, pos, docs, pos + 1, size - pos);
+            System.arraycopy(freqs, pos, freqs, pos + 1, size - pos);
+            docs[pos] = doc;
+            freqs[pos] = freq;
+            size++;
+        }
+
+        void remove(int doc) {
+            int pos = Arrays.binarySearch(docs, 0, size, doc);
+            if (pos < 0) {
+                return;
+            }
+            System.arraycopy(docs, pos + 1, docs, pos, size - pos - 1);
+            System.arraycopy(freqs, pos + 1, freqs, pos, size - pos - 1);
+            size--;
+        }
+    }
+
+    // Query-time counterpart of Postings: matching documents in order, with their scores so far
+    private static class Scored {
+        private final int[] docs;
+        private final double[] scores;
+        private int size;
+
+        Scored(int capacity) {
+            docs = new int[capacity];
+            scores = new double[capacity];
+        }
+
+        void add(int doc, double score) {
+            docs[size] = doc;
+            scores[size] = score;
+            size++;
+        }
+    }
+}
@@ -16,13 +16,19 @@ public class Task {
 
     // Constructor
     public Task(UUID customerId, String title, String description, TaskStatus status, LocalDateTime dueDate) {
-        this.taskId = UUID.randomUUID();
+        this(Ids.next(), customerId, title, description, status, dueDate, LocalDateTime.now());
+    }
+
+    // A stored task: keeps its id and creation time instead of generating new ones
+    public Task(UUID taskId, UUID customerId, String title, String description, TaskStatus status,
+                LocalDateTime dueDate, LocalDateTime createdAt) {
+        this.taskId = taskId;
         this.customerId = customerId;
         this.title = title;
         this.description = description;
         this.status = status;
         this.dueDate = dueDate;
-        this.createdAt = LocalDateTime.now();
+        this.createdAt = createdAt;
     }
 
     // Getters
@@ -1,36 +1,63 @@
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public class TaskDAO {
 
-    public void addTask(Task task) throws SQLException {
-        String sql = "INSERT INTO tasks(id, customer_id, title, description, status, due_date, created_at) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SQL = "INSERT INTO tasks(id, customer_id, title, description, status, due_date, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE tasks SET title=?, description=?, status=?, due_date=? WHERE id=?";
+    private static final String DELETE_SQL = "DELETE FROM tasks WHERE id=?";
+    // Read queries, also checked by QueryPlanCheck
+    static final String FIND_BY_ID_SQL = "SELECT * FROM tasks WHERE id=?";
+    static final String FIND_BY_CUSTOMER_SQL = "SELECT * FROM tasks WHERE customer_id=?";
+    static final String PENDING_BY_DUE_SQL = "SELECT * FROM tasks WHERE status=? AND due_date IS NOT NULL ORDER BY due_date";
 
-        try (Connection conn = DBHelper.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    private static final int CALENDAR_BUCKETS = Integer.getInteger("crm.calendarCache.maxBuckets", 64);
+
+    private final ChangeListeners<Task> listeners = new ChangeListeners<>();
+    private int batchSize = BatchWriter.DEFAULT_CHUNK_SIZE;
+    private final CalendarCache<Task> calendar = new CalendarCache<>(
+            (start, end) -> findBetween(start, end, null),
+            Task::getTaskId, Task::getDueDate, TaskDAO::copyOf, CALENDAR_BUCKETS);
+
+    public TaskDAO() {
+        listeners.add(calendar);
+    }
 
-            pstmt.setString(1, task.getTaskId().toString());
-            pstmt.setString(2, task.getCustomerId().toString().replace("-", ""));
-            pstmt.setString(3, task.getTitle());
-            pstmt.setString(4, task.getDescription());
-            pstmt.setString(5, task.getStatus().name());
-            pstmt.setTimestamp(6, task.getDueDate() == null ? null : Timestamp.valueOf(task.getDueDate()));
-            pstmt.setTimestamp(7, Timestamp.valueOf(task.getCreatedAt()));
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
 
+    public void addChangeListener(ChangeListener<Task> listener) { listeners.add(listener); }
+
+    public void addTask(Task task) throws SQLException {
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+
+            bindInsert(pstmt, task);
             pstmt.executeUpdate();
         }
+        listeners.fireInserted(task);
+    }
+
+    public BatchResult addAll(Collection<Task> tasks) throws SQLException {
+        BatchResult result = BatchWriter.execute(INSERT_SQL, tasks, batchSize, this::bindInsert);
+        listeners.fireInserted(tasks, result);
+        return result;
     }
 
     public Task findById(UUID id) throws SQLException {
-        String sql = "SELECT * FROM tasks WHERE id=?";
+        String sql = FIND_BY_ID_SQL;
         try (Connection conn = DBHelper.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, id.toString());
+            pstmt.setBytes(1, UuidCodec.toBytes(id));
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
                 return mapResultSetToTask(rs);
@@ -41,11 +68,11 @@ public class TaskDAO {
 
     public List<Task> findByCustomerId(UUID customerId) throws SQLException {
         List<Task> tasks = new ArrayList<>();
-        String sql = "SELECT * FROM tasks WHERE customer_id=?";
+        String sql = FIND_BY_CUSTOMER_SQL;
         try (Connection conn = DBHelper.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, customerId.toString().replace("-", ""));
+            pstmt.setBytes(1, UuidCodec.toBytes(customerId));
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
                 tasks.add(mapResultSetToTask(rs));
@@ -54,29 +81,85 @@ public class TaskDAO {
         return tasks;
     }
 
-    public void updateTask(Task task) throws SQLException {
-        String sql = "UPDATE tasks SET title=?, description=?, status=?, due_date=? WHERE id=?";
+    // Tasks due in [start, end), earliest first; a null status matches any.
+    // Uses idx_tasks_status_due either way: without a status filter every status is listed,
+    // which MySQL turns into one range scan per status instead of a full scan.
+    public List<Task> findBetween(LocalDateTime start, LocalDateTime end, TaskStatus status) throws SQLException {
+        TaskStatus[] statuses = status == null ? TaskStatus.values() : new TaskStatus[]{status};
+        List<Task> tasks = new ArrayList<>();
+        String sql = betweenSql(statuses.length);
         try (Connection conn = DBHelper.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, task.getTitle());
-            pstmt.setString(2, task.getDescription());
-            pstmt.setString(3, task.getStatus().name());
-            pstmt.setTimestamp(4, task.getDueDate() == null ? null : Timestamp.valueOf(task.getDueDate()));
-            pstmt.setString(5, task.getTaskId().toString());
+            int i = 1;
+            for (TaskStatus s : statuses) {
+                pstmt.setString(i++, s.name());
+            }
+            pstmt.setTimestamp(i++, Timestamp.valueOf(start));
+            pstmt.setTimestamp(i, Timestamp.valueOf(end));
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                tasks.add(mapResultSetToTask(rs));
+            }
+        }
+        return tasks;
+    }
+
+    // Calendar views: the week (Monday to Sunday) or month containing the day, served from a cache
+    // that writes to that week or month invalidate
+    public List<Task> findWeek(LocalDate day, TaskStatus status) throws SQLException {
+        return withStatus(calendar.get(CalendarCache.Span.WEEK, day), status);
+    }
+
+    public List<Task> findMonth(LocalDate day, TaskStatus status) throws SQLException {
+        return withStatus(calendar.get(CalendarCache.Span.MONTH, day), status);
+    }
 
-            pstmt.executeUpdate();
+    static String betweenSql(int statusCount) {
+        return "SELECT * FROM tasks WHERE status IN (" + String.join(", ", Collections.nCopies(statusCount, "?")) +
+                ") AND due_date >= ? AND due_date < ? ORDER BY due_date";
+    }
+
+    public Map<UUID, List<Task>> findByCustomerIds(Collection<UUID> customerIds) throws SQLException {
+        return InListQuery.findGrouped("tasks", "customer_id", customerIds, this::mapResultSetToTask, Task::getCustomerId);
+    }
+
+    // The previous row is read (and locked) first only when a listener asks for it
+    public void updateTask(Task task) throws SQLException {
+        if (listeners.needsBefore()) {
+            UnitOfWork.inTransaction(() -> {
+                update(task, lockRows(List.of(task.getTaskId())).get(task.getTaskId()));
+                return null;
+            });
+        } else {
+            update(task, null);
         }
     }
 
+    public BatchResult updateAll(Collection<Task> tasks) throws SQLException {
+        if (listeners.needsBefore()) {
+            return UnitOfWork.inTransaction(() ->
+                    updateAll(tasks, lockRows(tasks.stream().map(Task::getTaskId).toList())));
+        }
+        return updateAll(tasks, Map.of());
+    }
+
     public void deleteTask(UUID id) throws SQLException {
-        String sql = "DELETE FROM tasks WHERE id=?";
-        try (Connection conn = DBHelper.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        if (listeners.needsBefore()) {
+            UnitOfWork.inTransaction(() -> {
+                delete(id, lockRows(List.of(id)).get(id));
+                return null;
+            });
+        } else {
+            delete(id, null);
+        }
+    }
 
-            pstmt.setString(1, id.toString());
-            pstmt.executeUpdate();
+    public BatchResult deleteAll(Collection<UUID> ids) throws SQLException {
+        if (listeners.needsBefore()) {
+            return UnitOfWork.inTransaction(() -> deleteAll(ids, lockRows(ids)));
         }
+        return deleteAll(ids, Map.of());
     }
 
     public List<Task> findAll() throws SQLException {
@@ -93,9 +176,113 @@ public class TaskDAO {
         return tasks;
     }
 
-    private Task mapResultSetToTask(ResultSet rs) throws SQLException {
-        UUID taskId = UUID.fromString(rs.getString("id"));
-        UUID customerId = UUID.fromString(rs.getString("customer_id"));
+    public Stream<Task> streamAll() throws SQLException {
+        return RowStreams.stream("SELECT * FROM tasks", this::mapResultSetToTask);
+    }
+
+    public Stream<Task> streamByCustomerId(UUID customerId) throws SQLException {
+        return RowStreams.stream(FIND_BY_CUSTOMER_SQL, this::mapResultSetToTask,
+                UuidCodec.toBytes(customerId));
+    }
+
+    // Open tasks that have a due date, earliest first; a range scan of idx_tasks_status_due
+    public Stream<Task> streamPendingByDueDate() throws SQLException {
+        return RowStreams.stream(PENDING_BY_DUE_SQL, this::mapResultSetToTask, TaskStatus.PENDING.name());
+    }
+
+    public Page<Task> findPage(int pageSize, String cursor) throws SQLException {
+        return KeysetPager.fetch("tasks", pageSize, cursor, this::mapResultSetToTask);
+    }
+
+    public long count() throws SQLException {
+        return KeysetPager.count("tasks");
+    }
+
+    public String skipCursor(String cursor, long rows) throws SQLException {
+        return KeysetPager.skip("tasks", cursor, rows);
+    }
+
+    private static List<Task> withStatus(List<Task> tasks, TaskStatus status) {
+        if (status == null) {
+            return tasks;
+        }
+        List<Task> matching = new ArrayList<>();
+        for (Task task : tasks) {
+            if (task.getStatus() == status) {
+                matching.add(task);
+            }
+        }
+        return matching;
+    }
+
+    private static Task copyOf(Task t) {
+        return new Task(t.getTaskId(), t.getCustomerId(), t.getTitle(), t.getDescription(), t.getStatus(),
+                t.getDueDate(), t.getCreatedAt());
+    }
+
+    private void update(Task task, Task before) throws SQLException {
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(UPDATE_SQL)) {
+
+            bindUpdate(pstmt, task);
+            if (pstmt.executeUpdate() > 0) {
+                listeners.fireUpdated(before, task);
+            }
+        }
+    }
+
+    private BatchResult updateAll(Collection<Task> tasks, Map<UUID, Task> before) throws SQLException {
+        BatchResult result = BatchWriter.execute(UPDATE_SQL, tasks, batchSize, this::bindUpdate);
+        listeners.fireUpdated(before, tasks, Task::getTaskId, result);
+        return result;
+    }
+
+    private void delete(UUID id, Task before) throws SQLException {
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(DELETE_SQL)) {
+
+            bindDelete(pstmt, id);
+            if (pstmt.executeUpdate() > 0) {
+                listeners.fireDeleted(id, before);
+            }
+        }
+    }
+
+    private BatchResult deleteAll(Collection<UUID> ids, Map<UUID, Task> before) throws SQLException {
+        BatchResult result = BatchWriter.execute(DELETE_SQL, ids, batchSize, this::bindDelete);
+        listeners.fireDeleted(before, ids, result);
+        return result;
+    }
+
+    private Map<UUID, Task> lockRows(Collection<UUID> ids) throws SQLException {
+        return InListQuery.lock("tasks", ids, this::mapResultSetToTask, Task::getTaskId);
+    }
+
+    private void bindInsert(PreparedStatement pstmt, Task task) throws SQLException {
+        pstmt.setBytes(1, UuidCodec.toBytes(task.getTaskId()));
+        pstmt.setBytes(2, UuidCodec.toBytes(task.getCustomerId()));
+        pstmt.setString(3, task.getTitle());
+        pstmt.setString(4, task.getDescription());
+        pstmt.setString(5, task.getStatus().name());
+        pstmt.setTimestamp(6, task.getDueDate() == null ? null : Timestamp.valueOf(task.getDueDate()));
+        pstmt.setTimestamp(7, Timestamp.valueOf(task.getCreatedAt()));
+    }
+
+    private void bindUpdate(PreparedStatement pstmt, Task task) throws SQLException {
+        pstmt.setString(1, task.getTitle());
+        pstmt.setString(2, task.getDescription());
+        pstmt.setString(3, task.getStatus().name());
+        pstmt.setTimestamp(4, task.getDueDate() == null ? null : Timestamp.valueOf(task.getDueDate()));
+        pstmt.setBytes(5, UuidCodec.toBytes(task.getTaskId()));
+    }
+
+    private void bindDelete(PreparedStatement pstmt, UUID id) throws SQLException {
+        pstmt.setBytes(1, UuidCodec.toBytes(id));
+    }
+
+    public Task mapResultSetToTask(ResultSet rs) throws SQLException {
+        UUID taskId = UuidCodec.read(rs, "id");
+        UUID customerId = UuidCodec.read(rs, "customer_id");
         String title = rs.getString("title");
         String description = rs.getString("description");
         TaskStatus status = TaskStatus.valueOf(rs.getString("status"));
@@ -104,9 +291,6 @@ public class TaskDAO {
         Timestamp createdTs = rs.getTimestamp("created_at");
         LocalDateTime createdAt = createdTs.toLocalDateTime();
 
-        Task task = new Task(customerId, title, description, status, dueDate);
-        task.setTaskId(taskId);
-        task.setCreatedAt(createdAt);
-        return task;
+        return new Task(taskId, customerId, title, description, status, dueDate, createdAt);
     }
 }
@@ -0,0 +1,251 @@
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Tells listeners when open tasks become due soon and when they become overdue, without scanning the table.
+// start() loads the PENDING tasks that have a due date once, through idx_tasks_status_due; from then on
+// TaskDAO's change listener keeps the schedule in step with addTask/updateTask/deleteTask.
+//
+// Deadlines sit on a hashed timing wheel: WHEEL_SIZE buckets of one tick each, a deadline going into
+// bucket (tick % WHEEL_SIZE). Scheduling and cancelling are O(1); each tick only looks at one bucket,
+// where deadlines more than one turn of the wheel away are simply skipped until their turn comes.
+public class TaskDueScheduler implements AutoCloseable {
+
+    // -Dcrm.taskScheduler.tickMillis; due dates are minute-precise, so a second is plenty
+    private static final long TICK_MILLIS = Long.getLong("crm.taskScheduler.tickMillis", 1_000);
+    private static final int WHEEL_SIZE = 512;
+
+    public interface Listener {
+        default void dueSoon(Task task) {}
+
+        default void overdue(Task task) {}
+    }
+
+    private enum Phase { DUE_SOON, DUE, OVERDUE }
+
+    private final TaskDAO taskDAO;
+    private final long dueSoonMillis;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "crm-task-scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Guarded by this
+    private final Entry[] wheel = new Entry[WHEEL_SIZE];
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private final long startMillis = System.currentTimeMillis();
+    private long currentTick;
+    // Ids written through the DAO while start() is loading; see SearchService
+    private Set<UUID> touched;
+
+    public TaskDueScheduler(TaskDAO taskDAO, Duration dueSoon) {
+        this.taskDAO = taskDAO;
+        this.dueSoonMillis = dueSoon.toMillis();
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new Entry(null);
+        }
+
+        taskDAO.addChangeListener(new ChangeListener<>() {
+            @Override
+            public void inserted(Task task) { apply(task); }
+
+            @Override
+            public void updated(Task task) { apply(task); }
+
+            @Override
+            public void deleted(UUID id) { cancel(id); }
+        });
+    }
+
+    public void addListener(Listener listener) { listeners.add(listener); }
+
+    // ----------------------------
+    // LIFECYCLE
+    // ----------------------------
+    public void start() throws SQLException {
+        synchronized (this) {
+            touched = new HashSet<>();
+        }
+        try (Stream<Task> tasks = taskDAO.streamPendingByDueDate()) {
+            tasks.forEach(task -> {
+                synchronized (this) {
+                    if (!touched.contains(task.getTaskId())) {
+                        schedule(task);
+                    }
+                }
+            });
+        } catch (UncheckedSQLException ex) {
+            throw ex.getCause();
+        } finally {
+            synchronized (this) {
+                touched = null;
+            }
+        }
+        ticker.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    // ----------------------------
+    // QUERIES
+    // ----------------------------
+    public synchronized List<Task> getOverdue() { return tasksIn(Phase.OVERDUE); }
+
+    // Due soon but not overdue yet
+    public synchronized List<Task> getDueSoon() { return tasksIn(Phase.DUE); }
+
+    // Open tasks with a due date that the scheduler is tracking
+    public synchronized int size() { return entries.size(); }
+
+    // ----------------------------
+    // HELPER METHODS
+    // ----------------------------
+    private synchronized void apply(Task task) {
+        if (touched != null) {
+            touched.add(task.getTaskId());
+        }
+        schedule(task);
+    }
+
+    private synchronized void cancel(UUID id) {
+        if (touched != null) {
+            touched.add(id);
+        }
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            entry.unlink();
+        }
+    }
+
+    // Replaces whatever was scheduled for the task; tasks that are closed or have no due date drop out
+    private void schedule(Task task) {
+        Entry old = entries.remove(task.getTaskId());
+        if (old != null) {
+            old.unlink();
+        }
+        if (task.getStatus() != TaskStatus.PENDING || task.getDueDate() == null) {
+            return;
+        }
+
+        Entry entry = new Entry(task);
+        entry.dueTick = tickOf(toMillis(task.getDueDate()));
+        entries.put(task.getTaskId(), entry);
+        entry.phase = Phase.DUE_SOON;
+        link(entry, tickOf(toMillis(task.getDueDate()) - dueSoonMillis));
+    }
+
+    private void tick() {
+        List<Task> dueSoon = new ArrayList<>();
+        List<Task> overdue = new ArrayList<>();
+        synchronized (this) {
+            long nowTick = tickOf(System.currentTimeMillis());
+            // After a long stall, one full turn of the wheel visits every bucket once
+            long from = Math.max(currentTick + 1, nowTick - WHEEL_SIZE + 1);
+            for (long t = from; t <= nowTick; t++) {
+                currentTick = t;
+                expire(t, dueSoon, overdue);
+            }
+            currentTick = Math.max(currentTick, nowTick);
+        }
+
+        // Callbacks run outside the lock, so they may call back into the scheduler or the DAO
+        for (Listener listener : listeners) {
+            try {
+                dueSoon.forEach(listener::dueSoon);
+                overdue.forEach(listener::overdue);
+            } catch (RuntimeException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private void expire(long tick, List<Task> dueSoon, List<Task> overdue) {
+        Entry head = wheel[(int) (tick & (WHEEL_SIZE - 1))];
+        Entry entry = head.next;
+        while (entry != head) {
+            Entry next = entry.next;
+            if (entry.deadlineTick <= tick) {
+                entry.unlink();
+                // A task that is already past due skips straight to overdue
+                if (entry.phase == Phase.DUE_SOON && entry.dueTick > tick) {
+                    dueSoon.add(entry.task);
+                    entry.phase = Phase.DUE;
+                    link(entry, entry.dueTick);
+                    entry = next;
+                    continue;
+                }
+                overdue.add(entry.task);
+                // Stays in entries, off the wheel, until the task is closed or deleted
+                entry.phase = Phase.OVERDUE;
+            }
+            entry = next;
+        }
+    }
+
+    // Deadlines already in the past go into the next bucket to be expired
+    private void link(Entry entry, long deadlineTick) {
+        entry.deadlineTick = Math.max(deadlineTick, currentTick + 1);
+        Entry head = wheel[(int) (entry.deadlineTick & (WHEEL_SIZE - 1))];
+        entry.prev = head.prev;
+        entry.next = head;
+        head.prev.next = entry;
+        head.prev = entry;
+    }
+
+    private List<Task> tasksIn(Phase phase) {
+        List<Task> tasks = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.phase == phase) {
+                tasks.add(entry.task);
+            }
+        }
+        return tasks;
+    }
+
+    private long tickOf(long millis) {
+        return Math.floorDiv(millis - startMillis + TICK_MILLIS - 1, TICK_MILLIS);
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // A task on the wheel; each bucket is a circular doubly linked list around a sentinel entry
+    private static class Entry {
+        private final Task task;
+        private Phase phase;
+        private long deadlineTick;
+        private long dueTick;
+        private Entry prev = this;
+        private Entry next = this;
+
+        Entry(Task task) {
+            this.task = task;
+        }
+
+        void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = this;
+            next = this;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+// RFC 4180 writer. Fields are quoted only when they need to be; null is written as an empty field.
+// Rows can be written whole or field by field, so callers can stream values without building a row.
+public class CsvWriter implements Closeable, Flushable {
+
+    private final Writer out;
+    private boolean rowStarted;
+
+    public CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void writeRow(List<?> fields) throws IOException {
+        for (Object field : fields) {
+            writeField(field == null ? null : field.toString());
+        }
+        endRow();
+    }
+
+    public void writeRow(Object... fields) throws IOException {
+        writeRow(List.of(fields));
+    }
+
+    public void writeField(String value) throws IOException {
+        if (rowStarted) {
+            out.write(',');
+        }
+        rowStarted = true;
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (needsQuotes(value)) {
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        } else {
+            out.write(value);
+        }
+    }
+
+    public void endRow() throws IOException {
+        out.write("\r\n");
+        rowStarted = false;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private static boolean needsQuotes(String value) {
+        if (value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ') {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,363 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bulk import of customers from CSV, in constant memory however large the file.
+//
+//   reader   (calling thread) streams records off the file and hands them out in chunks
+//   workers  (bounded pool) turn each record into a Customer and run validation()
+//   writer   (one thread) collects valid rows into batches and writes each with CustomerDAO.addAll,
+//            one transaction per batch
+//
+// Every hand-off is a bounded queue, so a slow database holds back the workers and they hold back the
+// reader. Rows that fail validation, and valid rows the database refuses (a duplicate email, say), go
+// to the rejects file with their line number and the reasons.
+//
+// The first line must be a header naming the columns full_name, phone, email, category and,
+// optionally, notes, in any order and case. Extra columns are ignored.
+//
+// Usage: java CustomerImporter <customers.csv> [rejects.csv] [threads] [batchSize]
+public class CustomerImporter {
+
+    // -Dcrm.import.threads, -Dcrm.import.batchSize
+    private static final int DEFAULT_THREADS = Integer.getInteger("crm.import.threads",
+            Runtime.getRuntime().availableProcessors());
+    private static final int DEFAULT_BATCH_SIZE = Integer.getInteger("crm.import.batchSize", 1_000);
+
+    // Records handed to a worker at a time, and chunks allowed to wait per worker at each hand-off
+    private static final int CHUNK_ROWS = 500;
+    private static final int CHUNKS_PER_WORKER = 2;
+    private static final long PROGRESS_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static final List<String> REQUIRED = List.of("full_name", "phone", "email", "category");
+
+    private final CustomerDAO customerDAO;
+    private final int threads;
+    private final int batchSize;
+
+    public CustomerImporter(CustomerDAO customerDAO) {
+        this(customerDAO, DEFAULT_THREADS, DEFAULT_BATCH_SIZE);
+    }
+
+    public CustomerImporter(CustomerDAO customerDAO, int threads, int batchSize) {
+        if (threads < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Threads and batch size must be positive: " + threads + ", " + batchSize);
+        }
+        this.customerDAO = customerDAO;
+        this.threads = threads;
+        this.batchSize = batchSize;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: java CustomerImporter <customers.csv> [rejects.csv] [threads] [batchSize]");
+            return;
+        }
+        Path csv = Path.of(args[0]);
+        Path rejects = args.length > 1 ? Path.of(args[1]) : Path.of(args[0] + ".rejects.csv");
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_THREADS;
+        int batchSize = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_BATCH_SIZE;
+
+        try {
+            ImportReport report = new CustomerImporter(new CustomerDAO(), threads, batchSize).importFile(csv, rejects);
+            System.out.println("Import finished:" + report);
+            if (report.getRejected() + report.getFailed() > 0) {
+                System.out.println("Rejected rows written to " + rejects);
+            }
+        } finally {
+            DBHelper.shutdown();
+        }
+    }
+
+    public ImportReport importFile(Path csv, Path rejects) throws IOException, SQLException, InterruptedException {
+        try (BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+             BufferedWriter out = Files.newBufferedWriter(rejects, StandardCharsets.UTF_8)) {
+            return importCsv(in, out);
+        }
+    }
+
+    // Rows read before a malformed record or a database error are still imported; the error is rethrown
+    public ImportReport importCsv(Reader csv, Writer rejects) throws IOException, SQLException, InterruptedException {
+        return new Run(new CsvReader(csv), new CsvWriter(rejects)).execute();
+    }
+
+    // ----------------------------
+    // ONE IMPORT
+    // ----------------------------
+    private class Run {
+        private final CsvReader reader;
+        private final CsvWriter errors;
+        private final long startNanos = System.nanoTime();
+
+        private final LongAdder read = new LongAdder();
+        private final LongAdder imported = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        // First I/O or database error; once set, the reader stops and the writer only drains its queue
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        private final BlockingQueue<List<Row>> accepted = new ArrayBlockingQueue<>(threads * CHUNKS_PER_WORKER);
+        private Columns columns;
+
+        Run(CsvReader reader, CsvWriter errors) {
+            this.reader = reader;
+            this.errors = errors;
+        }
+
+        ImportReport execute() throws IOException, SQLException, InterruptedException {
+            List<String> header = reader.next();
+            if (header == null) {
+                return report();
+            }
+            columns = Columns.of(header);
+            List<String> errorHeader = new ArrayList<>(List.of("line", "reasons"));
+            errorHeader.addAll(header);
+            errors.writeRow(errorHeader);
+
+            // A full work queue makes the reader validate the chunk itself, which also slows it down
+            AtomicInteger workerCount = new AtomicInteger();
+            ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(threads * CHUNKS_PER_WORKER), r -> {
+                        Thread t = new Thread(r, "crm-import-worker-" + workerCount.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }, new ThreadPoolExecutor.CallerRunsPolicy());
+            Thread writer = new Thread(this::writeLoop, "crm-import-writer");
+            writer.setDaemon(true);
+            writer.start();
+
+            try {
+                long nextProgress = startNanos + PROGRESS_NANOS;
+                List<Row> chunk = new ArrayList<>(CHUNK_ROWS);
+                List<String> fields;
+                while (failure.get() == null && (fields = reader.next()) != null) {
+                    if (fields.size() == 1 && fields.get(0).isBlank()) {
+                        continue;
+                    }
+                    read.increment();
+                    chunk.add(new Row(reader.getLineNumber(), fields));
+                    if (chunk.size() == CHUNK_ROWS) {
+                        List<Row> rows = chunk;
+                        workers.execute(() -> validate(rows));
+                        chunk = new ArrayList<>(CHUNK_ROWS);
+
+                        if (System.nanoTime() >= nextProgress) {
+                            System.out.println("Import progress:" + report());
+                            nextProgress += PROGRESS_NANOS;
+                        }
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    List<Row> rows = chunk;
+                    workers.execute(() -> validate(rows));
+                }
+            } finally {
+                workers.shutdown();
+                workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                accepted.put(END);
+                writer.join();
+                errors.flush();
+            }
+
+            Exception ex = failure.get();
+            if (ex instanceof SQLException) {
+                throw (SQLException) ex;
+            }
+            if (ex instanceof IOException) {
+                throw (IOException) ex;
+            }
+            if (ex instanceof RuntimeException) {
+                throw (RuntimeException) ex;
+            }
+            return report();
+        }
+
+        // ----------------------------
+        // WORKERS
+        // ----------------------------
+        private void validate(List<Row> rows) {
+            List<Row> valid = new ArrayList<>(rows.size());
+            for (Row row : rows) {
+                row.customer = columns.toCustomer(row.fields);
+                List<String> reasons = row.customer.validation();
+                if (reasons.isEmpty()) {
+                    valid.add(row);
+                } else {
+                    rejected.increment();
+                    reject(row, String.join(" ", reasons));
+                }
+            }
+            try {
+                accepted.put(valid);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, new IOException("Import interrupted", ex));
+            }
+        }
+
+        // ----------------------------
+        // WRITER
+        // ----------------------------
+        private void writeLoop() {
+            List<Row> batch = new ArrayList<>(batchSize);
+            try {
+                while (true) {
+                    List<Row> rows = accepted.take();
+                    if (rows == END) {
+                        break;
+                    }
+                    if (failure.get() != null) {
+                        // Keep draining so no worker stays blocked on a full queue
+                        continue;
+                    }
+                    batch.addAll(rows);
+                    if (batch.size() >= batchSize) {
+                        write(batch);
+                        batch.clear();
+                    }
+                }
+                if (failure.get() == null) {
+                    write(batch);
+                }
+            } catch (InterruptedException ex) {
+                failure.compareAndSet(null, new IOException("Import interrupted", ex));
+            }
+        }
+
+        // Never throws: a failure is recorded and the loop keeps draining, or the workers would block
+        // forever on the full queue
+        private void write(List<Row> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<Customer> customers = new ArrayList<>(batch.size());
+            for (Row row : batch) {
+                customers.add(row.customer);
+            }
+
+            BatchResult result;
+            try {
+                result = customerDAO.addAll(customers);
+                imported.add(result.getSucceeded());
+                result.getFailures().forEach((index, reason) -> {
+                    failed.increment();
+                    reject(batch.get(index), reason);
+                });
+            } catch (SQLException | RuntimeException ex) {
+                // The whole batch rolled back; keep draining until the reader notices
+                failure.compareAndSet(null, ex);
+            }
+        }
+
+        // ----------------------------
+        // HELPER METHODS
+        // ----------------------------
+        private void reject(Row row, String reasons) {
+            List<Object> out = new ArrayList<>(row.fields.size() + 2);
+            out.add(row.line);
+            out.add(reasons);
+            out.addAll(row.fields);
+            try {
+                synchronized (errors) {
+                    errors.writeRow(out);
+                }
+            } catch (IOException ex) {
+                failure.compareAndSet(null, ex);
+            }
+        }
+
+        private ImportReport report() {
+            return new ImportReport(read.sum(), imported.sum(), rejected.sum(), failed.sum(),
+                    System.nanoTime() - startNanos);
+        }
+    }
+
+    // Marks the end of the accepted queue
+    private static final List<Row> END = new ArrayList<>();
+
+    private static class Row {
+        private final long line;
+        private final List<String> fields;
+        private Customer customer;
+
+        Row(long line, List<String> fields) {
+            this.line = line;
+            this.fields = fields;
+        }
+    }
+
+    // Header name -> position, resolved once per file
+    private static class Columns {
+        private final int fullName;
+        private final int phone;
+        private final int email;
+        private final int category;
+        private final int notes;
+
+        private Columns(List<String> header) {
+            this.fullName = header.indexOf("full_name");
+            this.phone = header.indexOf("phone");
+            this.email = header.indexOf("email");
+            this.category = header.indexOf("category");
+            this.notes = header.indexOf("notes");
+        }
+
+        static Columns of(List<String> header) throws IOException {
+            List<String> names = new ArrayList<>(header.size());
+            for (String name : header) {
+                names.add(name.trim().toLowerCase(Locale.ROOT));
+            }
+            List<String> missing = new ArrayList<>();
+            for (String required : REQUIRED) {
+                if (!names.contains(required)) {
+                    missing.add(required);
+                }
+            }
+            if (!missing.isEmpty()) {
+                throw new IOException("CSV header is missing column(s): " + String.join(", ", missing));
+            }
+            return new Columns(names);
+        }
+
+        Customer toCustomer(List<String> fields) {
+            return new Customer(field(fields, fullName), field(fields, phone), field(fields, email),
+                    category(field(fields, category)), field(fields, notes));
+        }
+
+        // Short rows read as missing values, which validation() then reports
+        private static String field(List<String> fields, int index) {
+            if (index < 0 || index >= fields.size()) {
+                return null;
+            }
+            String value = fields.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private static Category category(String value) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                return Category.valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,451 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+// Exports the CRM tables to CSV or NDJSON files, optionally gzip-compressed, for BI.
+// Rows go straight from a streaming cursor (KeysetPager.stream) to a buffered writer: no entity
+// objects and no lists, so memory stays flat whatever the table size. Columns are taken from the
+// result set metadata; ids are written as UUID strings and timestamps in ISO-8601.
+//
+// Every CHECKPOINT_ROWS rows the file is flushed and synced and <file>.checkpoint records the key
+// cursor and the file length at that point. A resumed export cuts the file back to that length and
+// carries on after the cursor. Compressed files are written as one gzip member per checkpoint, which
+// gzip and GZIPInputStream read as a single stream, so cutting at a checkpoint never breaks the file.
+//
+// Each table is read in its own transaction; the files are not a consistent snapshot across tables.
+//
+// Usage: java DataExporter <directory> [csv|ndjson] [--gzip] [--resume] [table...]
+public class DataExporter {
+
+    public enum Format { CSV, NDJSON }
+
+    public static final List<String> TABLES = List.of("customers", "tasks", "appointments", "communications");
+
+    // -Dcrm.export.checkpointRows
+    private static final long CHECKPOINT_ROWS = Long.getLong("crm.export.checkpointRows", 50_000);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final Format format;
+    private final boolean gzip;
+
+    public DataExporter(Path directory, Format format, boolean gzip) {
+        this.directory = directory;
+        this.format = format;
+        this.gzip = gzip;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: java DataExporter <directory> [csv|ndjson] [--gzip] [--resume] [table...]");
+            return;
+        }
+        Format format = Format.CSV;
+        boolean gzip = false;
+        boolean resume = false;
+        List<String> tables = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "csv" -> format = Format.CSV;
+                case "ndjson" -> format = Format.NDJSON;
+                case "--gzip" -> gzip = true;
+                case "--resume" -> resume = true;
+                default -> tables.add(args[i]);
+            }
+        }
+
+        try {
+            DataExporter exporter = new DataExporter(Path.of(args[0]), format, gzip);
+            long start = System.nanoTime();
+            Map<String, Long> rows = exporter.exportAll(tables.isEmpty() ? TABLES : tables, resume);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            rows.forEach((table, count) -> System.out.println(table + ": " + count + " rows -> " + exporter.fileFor(table)));
+            System.out.printf("Export finished in %.1f s%n", seconds);
+        } finally {
+            DBHelper.shutdown();
+        }
+    }
+
+    // Exports the tables in parallel, one connection each; returns the row count per table
+    public Map<String, Long> exportAll(List<String> tables, boolean resume)
+            throws IOException, SQLException, InterruptedException {
+        Files.createDirectories(directory);
+        ExecutorService pool = Executors.newFixedThreadPool(tables.size(), r -> {
+            Thread t = new Thread(r, "crm-export");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            Map<String, Future<Long>> futures = new LinkedHashMap<>();
+            for (String table : tables) {
+                futures.put(table, pool.submit(() -> exportTable(table, resume)));
+            }
+            Map<String, Long> rows = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<Long>> entry : futures.entrySet()) {
+                try {
+                    rows.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof SQLException) {
+                        throw (SQLException) cause;
+                    }
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    throw new IllegalStateException("Export of " + entry.getKey() + " failed", cause);
+                }
+            }
+            return rows;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Exports one table; with resume, continues from its checkpoint if there is one.
+    // Returns the number of rows in the file.
+    public long exportTable(String table, boolean resume) throws IOException, SQLException {
+        if (!TABLES.contains(table)) {
+            throw new IllegalArgumentException("Unknown table: " + table + " (expected one of " + TABLES + ")");
+        }
+        Files.createDirectories(directory);
+        Checkpoint checkpoint = resume ? Checkpoint.load(checkpointFor(table), format, gzip) : null;
+        if (checkpoint != null && checkpoint.done) {
+            return checkpoint.rows;
+        }
+        if (checkpoint == null) {
+            // A stale checkpoint must not outlive the file it described
+            Files.deleteIfExists(checkpointFor(table));
+            checkpoint = new Checkpoint();
+        }
+
+        try (TableWriter out = new TableWriter(table, columns(table), checkpoint)) {
+            try (Stream<Boolean> rows = KeysetPager.stream(table, checkpoint.cursor, out::write)) {
+                rows.forEach(written -> {});
+            } catch (UncheckedSQLException ex) {
+                throw ex.getCause();
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            out.finish();
+            return out.rows;
+        }
+    }
+
+    public Path fileFor(String table) {
+        String extension = format == Format.CSV ? ".csv" : ".ndjson";
+        return directory.resolve(table + extension + (gzip ? ".gz" : ""));
+    }
+
+    private Path checkpointFor(String table) {
+        return directory.resolve(fileFor(table).getFileName() + ".checkpoint");
+    }
+
+    // ----------------------------
+    // ONE TABLE
+    // ----------------------------
+    private class TableWriter implements AutoCloseable {
+        private final String table;
+        private final List<Column> columns;
+        private final Checkpoint checkpoint;
+        private final FileChannel channel;
+        private final OutputStream file;
+
+        private Writer writer;
+        private CsvWriter csv;
+        private long rows;
+        private long sinceCheckpoint;
+
+        TableWriter(String table, List<Column> columns, Checkpoint checkpoint) throws IOException {
+            this.table = table;
+            this.columns = columns;
+            this.checkpoint = checkpoint;
+            this.rows = checkpoint.rows;
+
+            channel = FileChannel.open(fileFor(table), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            // Anything after the last checkpoint was written without a recorded cursor; drop it
+            channel.truncate(checkpoint.offset);
+            channel.position(checkpoint.offset);
+            file = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            openSegment();
+
+            if (checkpoint.offset == 0 && format == Format.CSV) {
+                for (Column column : columns) {
+                    csv.writeField(column.name);
+                }
+                csv.endRow();
+            }
+        }
+
+        // RowMapper for the table's cursor; a checkpoint is taken right after the row it names
+        Boolean write(ResultSet rs) throws SQLException {
+            try {
+                if (format == Format.CSV) {
+                    writeCsv(rs);
+                } else {
+                    writeJson(rs);
+                }
+                rows++;
+                if (++sinceCheckpoint >= CHECKPOINT_ROWS) {
+                    checkpoint(KeysetPager.cursorOf(rs), false);
+                    openSegment();
+                }
+                return Boolean.TRUE;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        void finish() throws IOException {
+            checkpoint(checkpoint.cursor, true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (FileChannel c = channel; OutputStream f = file; Writer w = writer) {
+                // closed in reverse order; a failed export keeps its last checkpoint
+            }
+        }
+
+        private void writeCsv(ResultSet rs) throws SQLException, IOException {
+            for (int i = 0; i < columns.size(); i++) {
+                csv.writeField(columns.get(i).text(rs, i + 1));
+            }
+            csv.endRow();
+        }
+
+        private void writeJson(ResultSet rs) throws SQLException, IOException {
+            writer.write('{');
+            for (int i = 0; i < columns.size(); i++) {
+                Column column = columns.get(i);
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeJsonString(column.name);
+                writer.write(':');
+                String value = column.text(rs, i + 1);
+                if (value == null) {
+                    writer.write("null");
+                } else if (column.kind == Kind.NUMBER || column.kind == Kind.BOOLEAN) {
+                    writer.write(value);
+                } else {
+                    writeJsonString(value);
+                }
+            }
+            writer.write("}\n");
+        }
+
+        private void writeJsonString(String value) throws IOException {
+            writer.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> writer.write("\\\"");
+                    case '\\' -> writer.write("\\\\");
+                    case '\n' -> writer.write("\\n");
+                    case '\r' -> writer.write("\\r");
+                    case '\t' -> writer.write("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            writer.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            writer.write(c);
+                        }
+                    }
+                }
+            }
+            writer.write('"');
+        }
+
+        // A segment is one gzip member, or just a stretch of plain text
+        private void openSegment() throws IOException {
+            OutputStream segment = new FilterOutputStream(file) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    // Ends the segment, not the file
+                    flush();
+                }
+            };
+            if (gzip) {
+                segment = new GZIPOutputStream(segment, BUFFER_SIZE);
+            }
+            writer = new BufferedWriter(new OutputStreamWriter(segment, StandardCharsets.UTF_8), BUFFER_SIZE);
+            csv = new CsvWriter(writer);
+            sinceCheckpoint = 0;
+        }
+
+        private void checkpoint(String cursor, boolean done) throws IOException {
+            writer.close();
+            file.flush();
+            channel.force(false);
+
+            checkpoint.cursor = cursor;
+            checkpoint.offset = channel.position();
+            checkpoint.rows = rows;
+            checkpoint.done = done;
+            checkpoint.save(checkpointFor(table), format, gzip);
+        }
+    }
+
+    private List<Column> columns(String table) throws SQLException {
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM " + table + " LIMIT 0")) {
+            ResultSetMetaData meta = pstmt.getMetaData();
+            List<Column> columns = new ArrayList<>(meta.getColumnCount());
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                columns.add(new Column(meta.getColumnLabel(i), Kind.of(meta.getColumnType(i), meta.getPrecision(i))));
+            }
+            return columns;
+        }
+    }
+
+    // ----------------------------
+    // COLUMNS
+    // ----------------------------
+    private enum Kind {
+        UUID, TIMESTAMP, NUMBER, BOOLEAN, TEXT;
+
+        static Kind of(int sqlType, int precision) {
+            switch (sqlType) {
+                case Types.BINARY:
+                case Types.VARBINARY:
+                    return precision == 16 ? UUID : TEXT;
+                case Types.TIMESTAMP:
+                case Types.TIMESTAMP_WITH_TIMEZONE:
+                    return TIMESTAMP;
+                case Types.BIT:
+                case Types.BOOLEAN:
+                    return BOOLEAN;
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    return NUMBER;
+                default:
+                    return TEXT;
+            }
+        }
+    }
+
+    private static class Column {
+        private final String name;
+        private final Kind kind;
+
+        Column(String name, Kind kind) {
+            this.name = name;
+            this.kind = kind;
+        }
+
+        // The value as exported text, or null for SQL NULL
+        String text(ResultSet rs, int index) throws SQLException {
+            switch (kind) {
+                case UUID: {
+                    byte[] bytes = rs.getBytes(index);
+                    return bytes == null ? null : UuidCodec.fromBytes(bytes).toString();
+                }
+                case TIMESTAMP: {
+                    Timestamp ts = rs.getTimestamp(index);
+                    // Always with seconds; LocalDateTime.toString() leaves out ":00"
+                    return ts == null ? null : DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(ts.toLocalDateTime());
+                }
+                case BOOLEAN: {
+                    boolean value = rs.getBoolean(index);
+                    return rs.wasNull() ? null : String.valueOf(value);
+                }
+                default:
+                    return rs.getString(index);
+            }
+        }
+    }
+
+    // ----------------------------
+    // CHECKPOINT FILE
+    // ----------------------------
+    private static class Checkpoint {
+        private String cursor;
+        private long offset;
+        private long rows;
+        private boolean done;
+
+        static Checkpoint load(Path path, Format format, boolean gzip) throws IOException {
+            if (!Files.exists(path)) {
+                return null;
+            }
+            Properties props = new Properties();
+            try (InputStream in = Files.newInputStream(path)) {
+                props.load(in);
+            }
+            if (!format.name().equals(props.getProperty("format")) ||
+                    gzip != Boolean.parseBoolean(props.getProperty("gzip"))) {
+                throw new IOException(path + " was written for format " + props.getProperty("format") +
+                        ", gzip=" + props.getProperty("gzip") + "; resume with the same options");
+            }
+            Checkpoint checkpoint = new Checkpoint();
+            checkpoint.cursor = props.getProperty("cursor");
+            checkpoint.offset = Long.parseLong(props.getProperty("offset", "0"));
+            checkpoint.rows = Long.parseLong(props.getProperty("rows", "0"));
+            checkpoint.done = Boolean.parseBoolean(props.getProperty("done"));
+            return checkpoint;
+        }
+
+        // Written to a temporary file and renamed, so a crash leaves the old checkpoint or the new one
+        void save(Path path, Format format, boolean gzip) throws IOException {
+            Properties props = new Properties();
+            props.setProperty("format", format.name());
+            props.setProperty("gzip", String.valueOf(gzip));
+            if (cursor != null) {
+                props.setProperty("cursor", cursor);
+            }
+            props.setProperty("offset", String.valueOf(offset));
+            props.setProperty("rows", String.valueOf(rows));
+            props.setProperty("done", String.valueOf(done));
+
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                props.store(out, null);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
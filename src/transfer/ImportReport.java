@@ -0,0 +1,35 @@
+// Outcome of a CSV import: rows read, how many were written, and how fast
+public class ImportReport {
+
+    private final long read;
+    private final long imported;
+    private final long rejected;
+    private final long failed;
+    private final long elapsedNanos;
+
+    public ImportReport(long read, long imported, long rejected, long failed, long elapsedNanos) {
+        this.read = read;
+        this.imported = imported;
+        this.rejected = rejected;
+        this.failed = failed;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRead() { return read; }
+    public long getImported() { return imported; }
+    // Rows that failed validation
+    public long getRejected() { return rejected; }
+    // Valid rows the database refused, e.g. a duplicate email
+    public long getFailed() { return failed; }
+    public double getElapsedSeconds() { return elapsedNanos / 1e9; }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : read * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%nRead: %d%nImported: %d%nRejected: %d%nFailed: %d%nTime: %.1f s (%.0f rows/s)",
+                read, imported, rejected, failed, getElapsedSeconds(), getRowsPerSecond());
+    }
+}
@@ -0,0 +1,48 @@
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+// Runs against the database DBHelper points at. Everything is written inside one unit of work that is
+// rolled back, so nothing is left behind.
+public class AppointmentScheduleTest {
+
+    public static void main(String[] args) throws SQLException {
+        conflictingBookingsInOneUnitAreRejected();
+        System.out.println("AppointmentScheduleTest: OK");
+    }
+
+    static void conflictingBookingsInOneUnitAreRejected() throws SQLException {
+        CustomerDAO customerDAO = new CustomerDAO();
+        AppointmentDAO appointmentDAO = new AppointmentDAO();
+        AppointmentSchedule schedule = new AppointmentSchedule(appointmentDAO);
+        LocalDateTime at = LocalDateTime.now().plusDays(30).truncatedTo(ChronoUnit.HOURS);
+
+        try (UnitOfWork uow = UnitOfWork.begin()) {
+            Customer customer = new Customer("Schedule Test", null, null, Category.REGULAR, null);
+            customerDAO.addCustomer(customer);
+
+            Appointment first = new Appointment(customer.getCustomerId(), "First", null, at, "Room 1",
+                    AppointmentStatus.PENDING);
+            appointmentDAO.addAppointment(first);
+            check(schedule.size() == 1, "the first booking is in the schedule before the unit commits");
+
+            Appointment second = new Appointment(customer.getCustomerId(), "Second", null, at.plusMinutes(15),
+                    "Room 1", AppointmentStatus.PENDING);
+            try {
+                appointmentDAO.addAppointment(second);
+                throw new AssertionError("the overlapping booking was accepted");
+            } catch (AppointmentConflictException expected) {
+                check(expected.getConflicts().stream()
+                                .allMatch(c -> c.getAppointmentId().equals(first.getAppointmentId())),
+                        "the conflict names the first booking");
+            }
+        }
+        check(schedule.size() == 0, "the rolled-back booking left the schedule");
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new AssertionError(what);
+        }
+    }
+}